@@ -1,20 +1,40 @@
 package com.minisqldb;
 
+import com.minisqldb.cache.ResultCache;
 import com.minisqldb.catalog.Catalog;
 import com.minisqldb.config.DatabaseConfig;
+import com.minisqldb.exec.ExternalSorter;
+import com.minisqldb.exec.HashJoin;
+import com.minisqldb.exec.TopN;
 import com.minisqldb.sql.SqlMiniParser;
 import com.minisqldb.storage.HeapTable;
-import com.minisqldb.table.RowFormat;
+import com.minisqldb.table.Row;
+import com.minisqldb.table.RowCodec;
 import com.minisqldb.wal.WAL;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 
 public final class Database implements AutoCloseable {
@@ -23,13 +43,27 @@ public final class Database implements AutoCloseable {
     private final WAL wal; // reserved for future
 
     private final Path tablesDir;
-    private final Map<String, HeapTable> openTables = new HashMap<>();
+    // concurrent so inserts into different partitions only contend on their own HeapTable
+    private final Map<Path, TableFile> openTables = new ConcurrentHashMap<>();
+    private final Map<String, RowCodec> codecs = new ConcurrentHashMap<>(); // cfg.rowFormatVersion, for rows in memory
+    private final Map<String, Long> tableVersions = new ConcurrentHashMap<>();
+    private final ResultCache resultCache; // null when disabled
+    private final ExecutorService scanPool; // fans full scans out over partitions
+
+    /** An open table file and the codec for the row format recorded in its header. */
+    private record TableFile(HeapTable heap, RowCodec codec) {}
 
     private Database(DatabaseConfig cfg, Catalog catalog, WAL wal, Path tablesDir) {
         this.cfg = cfg;
         this.catalog = catalog;
         this.wal = wal;
         this.tablesDir = tablesDir;
+        this.resultCache = cfg.resultCacheBytes > 0 ? new ResultCache(cfg.resultCacheBytes) : null;
+        this.scanPool = Executors.newFixedThreadPool(Math.max(1, cfg.scanThreads), r -> {
+            Thread t = new Thread(r, "partition-scan");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public static Database open(DatabaseConfig cfg) throws IOException {
@@ -48,37 +82,125 @@ public final class Database implements AutoCloseable {
         return catalog;
     }
 
-    private HeapTable ensureTableOpened(String name) {
+    /** @return cache counters, or null if the result cache is disabled */
+    public ResultCache.Stats resultCacheStats() {
+        return resultCache == null ? null : resultCache.stats();
+    }
+
+    private long tableVersion(String table) {
+        return tableVersions.getOrDefault(table, 0L);
+    }
+
+    /** Any change to a table's rows or schema moves its version and drops cached results that read it. */
+    private void bumpVersion(String table) {
+        tableVersions.merge(table, 1L, Long::sum);
+        if (resultCache != null) resultCache.invalidate(table);
+    }
+
+    private RowCodec codec(String table) {
+        RowCodec codec = codecs.get(table);
+        if (codec == null) {
+            Catalog.TableDef def = catalog.getTable(table);
+            if (def == null) throw new IllegalArgumentException("No such table: " + table);
+            codec = RowCodec.of(def, cfg.stringEncoding, cfg.rowFormatVersion);
+            codecs.put(table, codec);
+        }
+        return codec;
+    }
+
+    /** {@code tables/<name>.tbl}, or {@code <dir>/<name>.p<i>.tbl} with partition dirs assigned round-robin. */
+    private Path tableFile(String name, Catalog.Partitioning partitioning, int part) {
+        if (partitioning == null) return tablesDir.resolve(name + ".tbl");
+        Path dir = cfg.partitionDirs.isEmpty() ? tablesDir : cfg.partitionDirs.get(part % cfg.partitionDirs.size());
+        return dir.resolve(name + ".p" + part + ".tbl");
+    }
+
+    private List<Path> tableFiles(String name) {
+        Catalog.TableDef def = catalog.getTable(name);
+        if (def == null) return List.of(tableFile(name, null, 0));
+        List<Path> files = new ArrayList<>(def.partitionCount());
+        for (int p = 0; p < def.partitionCount(); p++) files.add(tableFile(name, def.partitioning(), p));
+        return files;
+    }
+
+    /** New files get {@code cfg.rowFormatVersion}; existing ones are read and appended in the format they record. */
+    private TableFile ensureTableOpened(Catalog.TableDef def, int part) {
         try {
-            return openTables.computeIfAbsent(name, t -> {
+            return openTables.computeIfAbsent(tableFile(def.name(), def.partitioning(), part), file -> {
                 try {
-                    Path file = tablesDir.resolve(t + ".tbl");
-                    return new HeapTable(file, cfg.pageSizeBytes);
+                    HeapTable heap = new HeapTable(file, cfg.pageSizeBytes, cfg.readAheadBytes / cfg.pageSizeBytes, cfg.rowFormatVersion);
+                    try {
+                        return new TableFile(heap, RowCodec.of(def, cfg.stringEncoding, heap.rowFormat()));
+                    } catch (IllegalArgumentException e) {
+                        heap.close();
+                        throw new IllegalStateException("Cannot open table file " + file + ": " + e.getMessage(), e);
+                    }
                 } catch (IOException e) { throw new RuntimeException(e); }
             });
         } catch (RuntimeException re) {
             if (re.getCause() instanceof IOException io) {
-                throw new IllegalStateException("Failed to open table file: " + name + ": " + io.getMessage(), io);
+                throw new IllegalStateException("Failed to open table file: " + def.name() + ": " + io.getMessage(), io);
             }
             throw re;
         }
     }
 
+    /** Table files opened so far; lets tests check which partitions a query touched. */
+    Set<Path> openTableFiles() {
+        return Set.copyOf(openTables.keySet());
+    }
+
+    /** Every partition of a table, one after another, as records of {@code as}; files in another format are re-encoded. */
+    private HashJoin.Records records(Catalog.TableDef def, RowCodec as) {
+        return v -> {
+            for (int p = 0; p < def.partitionCount(); p++) {
+                TableFile tf = ensureTableOpened(def, p);
+                RowCodec file = tf.codec();
+                Predicate<byte[]> visit = file.version() == as.version() ? v : rec -> v.test(as.encode(file.decode(rec)));
+                if (!tf.heap().forEachWhile(visit)) return false;
+            }
+            return true;
+        };
+    }
+
     public void createTable(String name, LinkedHashMap<String,String> columns) throws IOException {
+        createTable(name, columns, null);
+    }
+
+    /**
+     * @param partitioning HASH or RANGE spread over partition files, or null for a single table file
+     */
+    public void createTable(String name, LinkedHashMap<String,String> columns, Catalog.Partitioning partitioning) throws IOException {
         if (catalog.getTable(name) != null) throw new IllegalArgumentException("Table exists: " + name);
-        catalog.createTable(new Catalog.TableDef(name, new LinkedHashMap<>(columns)));
-        Path file = tablesDir.resolve(name + ".tbl");
-        if (!Files.exists(file)) Files.createFile(file);
+        Catalog.TableDef def = new Catalog.TableDef(name, new LinkedHashMap<>(columns), partitioning);
+        RowCodec codec = RowCodec.of(def, cfg.stringEncoding, cfg.rowFormatVersion);
+        if (partitioning != null) {
+            int col = codec.indexOf(partitioning.column());
+            if (col < 0) throw new IllegalArgumentException("No such partition column: " + partitioning.column());
+            if (partitioning.kind() == Catalog.Partitioning.Kind.RANGE && !codec.isInt(col)) {
+                throw new IllegalArgumentException("RANGE partitioning needs an INT column: " + partitioning.column());
+            }
+        }
+        catalog.createTable(def);
+        codecs.put(name, codec);
+        bumpVersion(name);
+        for (Path file : tableFiles(name)) {
+            Files.createDirectories(file.getParent());
+            if (!Files.exists(file)) Files.createFile(file);
+        }
         wal.logCreateTable(name);
         wal.sync();
     }
 
     public void truncateTable(String name) throws IOException {
-        Path file = tablesDir.resolve(name + ".tbl");
-        if (Files.exists(file)) {
-            try (var ch = FileChannel.open(file, StandardOpenOption.WRITE)) { ch.truncate(0); }
+        for (Path file : tableFiles(name)) {
+            if (Files.exists(file)) {
+                try (var ch = FileChannel.open(file, StandardOpenOption.WRITE)) { ch.truncate(0); }
+            }
+            TableFile open = openTables.remove(file);
+            if (open != null) open.heap().close();
         }
-        openTables.remove(name);
+        bumpVersion(name);
         wal.logTruncate(name);
         wal.sync();
     }
@@ -86,44 +208,219 @@ public final class Database implements AutoCloseable {
 
     public void dropTable(String name) throws IOException {
         truncateTable(name);
-        Files.deleteIfExists(tablesDir.resolve(name + ".tbl"));
+        for (Path file : tableFiles(name)) Files.deleteIfExists(file);
         catalog.dropTable(name);
+        codecs.remove(name);
+        bumpVersion(name);
         wal.logDropTable(name);
         wal.sync();
     }
 
     public void insertRow(String table, Map<String,Object> values) throws IOException {
+        insertRow(table, codec(table).row(values));
+    }
+
+    /** Empty row of {@code table} for {@link #insertRow(String, Row)}, filled by column position. */
+    public Row newRow(String table) {
+        return codec(table).newRow();
+    }
+
+    /** @param row from {@link #newRow(String)} for this same table, with every column set */
+    public void insertRow(String table, Row row) throws IOException {
+        RowCodec codec = codec(table);
+        if (row.codec() != codec) throw new IllegalArgumentException("Row does not belong to table " + table);
+        codec.checkComplete(row); // before routing, which reads the partition column
         Catalog.TableDef def = catalog.getTable(table);
-        if (def == null) throw new IllegalArgumentException("No such table: " + table);
-        byte[] rec = RowFormat.serialize(def, values, cfg.stringEncoding);
-        HeapTable ht = ensureTableOpened(table);
-        ht.insert(rec);
+        int part = 0;
+        if (def.partitioning() != null) {
+            part = def.partitioning().partitionOf(codec.keyOf(row, codec.indexOf(def.partitioning().column())));
+        }
+        TableFile tf = ensureTableOpened(def, part);
+        tf.heap().insert(tf.codec().encode(row));
+        bumpVersion(table);
     }
 
     public String select(SqlMiniParser.Select sel) throws IOException {
-        var def = catalog.getTable(sel.table());
-        if (def==null) throw new IllegalArgumentException("No such table: "+sel.table());
+        if (resultCache == null) return execute(sel);
+        String key = sel.table() + "@" + tableVersion(sel.table());
+        if (sel.join() != null) key += "," + sel.join().table() + "@" + tableVersion(sel.join().table());
+        key += " " + sel;
+        String cached = resultCache.get(key);
+        if (cached != null) return cached;
+        String result = execute(sel);
+        if (sel.join() == null) resultCache.put(key, result, sel.table());
+        else resultCache.put(key, result, sel.table(), sel.join().table());
+        return result;
+    }
+
+    /** Rows a SELECT reads before ordering and limiting; reading stops once the sink returns false. */
+    private interface RowSource { void forEach(Predicate<Row> sink) throws IOException; }
+
+    private String execute(SqlMiniParser.Select sel) throws IOException {
+        RowCodec source = sel.join() == null ? codec(sel.table()) : RowCodec.joined(codec(sel.table()), codec(sel.join().table()));
+        // projection pushdown: a single-table scan decodes only the columns the query touches
+        int[] read = sel.join() == null && sel.columns() != null ? scanColumns(source, sel) : null;
+        RowCodec codec = read == null ? source : source.project(read);
+        // per table file, since each decodes with the row format its header records
+        Function<RowCodec, Function<byte[], Row>> decoder = read == null
+                ? file -> file::decode
+                : file -> rec -> file.decode(rec, codec, read);
+        Predicate<Row> where = sel.whereCol() == null ? null : codec.equalsFilter(sel.whereCol(), sel.whereVal());
+        RowSource rows = sel.join() == null
+                ? sink -> scan(sel, source, decoder, where, sink)
+                : sink -> hashJoin(sel, codec, where == null ? sink : row -> !where.test(row) || sink.test(row));
+        int[] shown = sel.columns() == null ? null : sel.columns().stream().mapToInt(c -> column(codec, c)).toArray();
+        Comparator<Row> cmp = sel.orderBy() == null ? null : codec.comparator(column(codec, sel.orderBy()));
+        if (sel.limit() == 0) return ""; // with or without ORDER BY, nothing to read
         StringBuilder sb=new StringBuilder();
-        ensureTableOpened(sel.table()).forEach(rec->{
-            var row=RowFormat.deserialize(def,rec,cfg.stringEncoding);
-            if (sel.whereCol()==null) {
-                sb.append(row).append("\n");
-            } else {
-                Object val=row.get(sel.whereCol());
-                if (val!=null && val.toString().equals(sel.whereVal())) {
-                    sb.append(row).append("\n");
-                }
+        Consumer<Row> out = row -> sb.append(shown == null ? row.toString() : row.toString(shown)).append("\n");
+        if (cmp == null) {
+            int[] left = {sel.limit()}; // -1: no LIMIT
+            rows.forEach(row -> { out.accept(row); return left[0] < 0 || --left[0] > 0; });
+            return sb.toString();
+        }
+        if (sel.descending()) cmp = cmp.reversed();
+        if (sel.limit() >= 0) {
+            TopN top = new TopN(sel.limit(), cmp);
+            rows.forEach(row -> { top.add(row); return true; });
+            top.sorted().forEach(out);
+        } else {
+            try (ExternalSorter sorter = new ExternalSorter(codec, cmp, cfg.sortMemoryBytes, tmpDir())) {
+                rows.forEach(row -> {
+                    try { sorter.add(row); } catch (IOException e) { throw new UncheckedIOException(e); }
+                    return true;
+                });
+                sorter.forEachSorted(out);
             }
-        });
+        }
         return sb.toString();
     }
 
+    /** Projected columns, then any WHERE / ORDER BY column the projection leaves out. */
+    private static int[] scanColumns(RowCodec table, SqlMiniParser.Select sel) {
+        LinkedHashSet<Integer> cols = new LinkedHashSet<>();
+        for (String c : sel.columns()) cols.add(column(table, c));
+        if (sel.whereCol() != null && table.indexOf(sel.whereCol()) >= 0) cols.add(table.indexOf(sel.whereCol()));
+        if (sel.orderBy() != null) cols.add(column(table, sel.orderBy()));
+        return cols.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int column(RowCodec codec, String name) {
+        int col = codec.indexOf(name);
+        if (col < 0) throw new IllegalArgumentException("No such column: " + name);
+        return col;
+    }
+
+    private Path tmpDir() {
+        return cfg.dataDir.resolve("tmp");
+    }
+
+    /**
+     * Single-table scan. An equality WHERE on the partition column reads one partition; other scans
+     * of partitioned tables fan out over the scan pool and call the sink under a lock.
+     * Once the sink returns false no further pages are read.
+     */
+    private void scan(SqlMiniParser.Select sel, RowCodec codec, Function<RowCodec, Function<byte[], Row>> decoder,
+                      Predicate<Row> where, Predicate<Row> sink) throws IOException {
+        Catalog.TableDef def = catalog.getTable(sel.table());
+        int only = prunedPartition(def, codec, sel);
+        if (only < 0 && def.partitionCount() > 1) {
+            scanParallel(def, decoder, where, sink);
+            return;
+        }
+        try {
+            TableFile tf = ensureTableOpened(def, Math.max(only, 0));
+            Function<byte[], Row> decode = decoder.apply(tf.codec());
+            tf.heap().forEachWhile(rec -> {
+                Row row = decode.apply(rec);
+                return where != null && !where.test(row) || sink.test(row);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** @return the only partition an equality WHERE on the partition column can match, or -1 */
+    private static int prunedPartition(Catalog.TableDef def, RowCodec codec, SqlMiniParser.Select sel) {
+        Catalog.Partitioning p = def.partitioning();
+        if (p == null || sel.whereCol() == null || !sel.whereCol().equals(p.column())) return -1;
+        try {
+            return p.partitionOf(codec.keyOf(sel.whereVal(), codec.indexOf(p.column())));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void scanParallel(Catalog.TableDef def, Function<RowCodec, Function<byte[], Row>> decoder, Predicate<Row> where,
+                              Predicate<Row> sink)
+            throws IOException {
+        Object lock = new Object();
+        // sink said stop or a partition failed: every partition scan quits at its next record
+        AtomicBoolean done = new AtomicBoolean();
+        List<TableFile> parts = new ArrayList<>(def.partitionCount());
+        for (int p = 0; p < def.partitionCount(); p++) parts.add(ensureTableOpened(def, p)); // open errors before any task runs
+        List<Future<?>> tasks = new ArrayList<>(parts.size());
+        for (TableFile part : parts) {
+            Function<byte[], Row> decode = decoder.apply(part.codec());
+            tasks.add(scanPool.submit(() -> {
+                try {
+                    part.heap().forEachWhile(rec -> {
+                        if (done.get()) return false;
+                        Row row = decode.apply(rec);
+                        if (where != null && !where.test(row)) return true;
+                        synchronized (lock) {
+                            if (done.get()) return false;
+                            if (!sink.test(row)) done.set(true);
+                        }
+                        return !done.get();
+                    });
+                } catch (IOException | RuntimeException | Error e) {
+                    done.set(true);
+                    throw e;
+                }
+                return null;
+            }));
+        }
+        // wait for every partition before reporting, so no task still feeds the sink afterwards
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                task.cancel(true);
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Partition scan interrupted: " + def.name());
+        }
+        if (failure instanceof UncheckedIOException u) throw u.getCause();
+        if (failure instanceof IOException io) throw io;
+        if (failure instanceof RuntimeException re) throw re;
+        if (failure instanceof Error err) throw err;
+    }
+
+    /** Hash join: the joined table is the build side, the FROM table is streamed as the probe side. */
+    private void hashJoin(SqlMiniParser.Select sel, RowCodec joined, Predicate<Row> sink) throws IOException {
+        SqlMiniParser.Join j = sel.join();
+        RowCodec left = codec(sel.table());
+        RowCodec right = codec(j.table());
+        int lk = column(left, j.leftColumn());
+        int rk = column(right, j.rightColumn());
+        try (HashJoin hj = new HashJoin(right, rk, left, lk, cfg.joinMemoryBytes, tmpDir())) {
+            hj.run(records(catalog.getTable(j.table()), right), records(catalog.getTable(sel.table()), left),
+                    (probeRec, buildRec) -> sink.test(joined.join(left.decode(probeRec), right.decode(buildRec))));
+        }
+    }
+
     public String dump(String table) throws IOException {
-        Catalog.TableDef def = catalog.getTable(table);
-        if (def == null) throw new IllegalArgumentException("No such table: " + table);
-        HeapTable ht = ensureTableOpened(table);
+        RowCodec codec = codec(table);
         StringBuilder sb = new StringBuilder();
-        ht.forEach(rec -> sb.append(RowFormat.deserialize(def, rec, cfg.stringEncoding)).append('\n'));
+        records(catalog.getTable(table), codec).forEach(rec -> { sb.append(codec.decode(rec)).append('\n'); return true; });
         return sb.toString();
     }
 
@@ -133,7 +430,8 @@ public final class Database implements AutoCloseable {
 
     @Override public void close() throws IOException {
         checkpoint();
-        for (var t : openTables.values()) t.close();
+        scanPool.shutdown();
+        for (var t : openTables.values()) t.heap().close();
         wal.close();
     }
 }
\ No newline at end of file
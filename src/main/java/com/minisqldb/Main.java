@@ -6,22 +6,32 @@ package com.minisqldb;
 
 import com.minisqldb.config.DatabaseConfig;
 import com.minisqldb.sql.SqlMiniParser;
+import com.minisqldb.table.Row;
+import com.minisqldb.table.RowCodec;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 
 
 public final class Main {
     public static void main(String[] args) throws Exception {
         Path dataDir = Path.of("./data");
-        for (int i=0;i<args.length-1;i++) if ("--data".equals(args[i])) dataDir = Path.of(args[i+1]);
-        DatabaseConfig cfg = new DatabaseConfig(); cfg.dataDir = dataDir;
+        DatabaseConfig cfg = new DatabaseConfig();
+        List<Path> partitionDirs = new ArrayList<>();
+        for (int i=0;i<args.length-1;i++) {
+            if ("--data".equals(args[i])) dataDir = Path.of(args[i+1]);
+            if ("--result-cache-mb".equals(args[i])) cfg.resultCacheBytes = Long.parseLong(args[i+1]) << 20;
+            if ("--partition-dir".equals(args[i])) partitionDirs.add(Path.of(args[i+1]));
+            if ("--row-format".equals(args[i])) cfg.rowFormatVersion = Integer.parseInt(args[i+1]);
+        }
+        cfg.dataDir = dataDir;
+        cfg.partitionDirs = partitionDirs;
         try (Database db = Database.open(cfg)) { repl(db); }
     }
 
@@ -41,7 +51,7 @@ public final class Main {
             if (line.startsWith(".")) {
                 String[] parts = line.split("\s+", 3);
                 switch (parts[0]) {
-                    case ".help" -> System.out.println("Commands: .help .quit .tables .dump <table> .truncate <table> .drop <table>");
+                    case ".help" -> System.out.println("Commands: .help .quit .tables .dump <table> .truncate <table> .drop <table> .stats");
                     case ".quit" -> { return; }
                     case ".tables" -> System.out.print(SqlMiniParser.describe(db.catalog()));
                     case ".dump" -> {
@@ -59,6 +69,13 @@ public final class Main {
                         try { db.dropTable(parts[1].trim()); System.out.println("OK: dropped"); }
                         catch (Throwable t) { System.out.println("Error: " + t.getMessage()); }
                     }
+                    case ".stats" -> {
+                        var st = db.resultCacheStats();
+                        if (st == null) { System.out.println("result cache: disabled (--result-cache-mb <n>)"); break; }
+                        System.out.println("result cache: hits=" + st.hits() + " misses=" + st.misses()
+                                + " evictions=" + st.evictions() + " entries=" + st.entries()
+                                + " bytes=" + st.bytes() + "/" + st.maxBytes());
+                    }
                     case ".wal" -> {
                         int n = 50; // default tail lines
                         if (parts.length >= 2) { try { n = Integer.parseInt(parts[1]); } catch (NumberFormatException ignore) {} }
@@ -105,10 +122,11 @@ public final class Main {
         if (SqlMiniParser.isCreateTable(sql)) {
             var ct=SqlMiniParser.parseCreateTable(sql);
             try {
-                db.createTable(ct.name(), new LinkedHashMap<>(ct.columns()));
+                db.createTable(ct.name(), new LinkedHashMap<>(ct.columns()), ct.partitioning());
                 System.out.println("OK: created table "+ct.name());
             } catch (IllegalArgumentException e) {
-                if (ct.ifNotExists()) {
+                // only a name clash is excused; bad types or partition specs still fail
+                if (ct.ifNotExists() && db.catalog().getTable(ct.name()) != null) {
                     System.out.println("Notice: table "+ct.name()+" already exists");
                 } else {
                     throw e;
@@ -118,13 +136,19 @@ public final class Main {
         }
         if (SqlMiniParser.isInsert(sql)) {
             var ins=SqlMiniParser.parseInsert(sql);
-            var def=db.catalog().getTable(ins.table());
-            Map<String,Object> row=new HashMap<>();
+            Row row=db.newRow(ins.table());
+            RowCodec codec=row.codec();
+            boolean[] given=new boolean[codec.columnCount()];
             for (int i=0;i<ins.columns().size();i++) {
-                String col=ins.columns().get(i);
+                int col=codec.indexOf(ins.columns().get(i));
+                if (col<0) throw new IllegalArgumentException("No such column: "+ins.columns().get(i));
                 String raw=ins.values().get(i);
-                if (raw.startsWith("'")&&raw.endsWith("'")) row.put(col, raw.substring(1,raw.length()-1));
-                else row.put(col,Integer.parseInt(raw));
+                if (raw.startsWith("'")&&raw.endsWith("'")) raw=raw.substring(1,raw.length()-1);
+                if (codec.isInt(col)) row.setInt(col,Integer.parseInt(raw)); else row.setString(col,raw);
+                given[col]=true;
+            }
+            for (int col=0;col<given.length;col++) {
+                if (!given[col]) throw new IllegalArgumentException("Missing value for column "+codec.columnName(col));
             }
             db.insertRow(ins.table(), row);
             System.out.println("OK: 1 row inserted");
@@ -0,0 +1,85 @@
+package com.minisqldb.cache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Byte-bounded LRU of SELECT results.
+ * Keys are built by the caller and should embed the versions of the tables read;
+ * {@link #invalidate(String)} additionally drops every entry that read a table so stale text does not hold memory.
+ */
+public final class ResultCache {
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {}
+
+    private record Entry(String[] tables, String result, long bytes) {}
+
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+    // table -> keys of entries that read it; written under the lock, read without it on the invalidate fast path
+    private final Map<String, Set<String>> byTable = new ConcurrentHashMap<>();
+    private long bytes;
+    private long hits, misses, evictions;
+
+    public ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** @return cached result text, or null on a miss */
+    public synchronized String get(String key) {
+        Entry e = lru.get(key);
+        if (e == null) { misses++; return null; }
+        hits++;
+        return e.result;
+    }
+
+    public synchronized void put(String key, String result, String... tables) {
+        long size = ENTRY_OVERHEAD + 2L * (key.length() + result.length());
+        if (size > maxBytes) return;
+        Entry old = lru.put(key, new Entry(tables, result, size));
+        if (old != null) unlink(key, old);
+        bytes += size;
+        for (String t : tables) byTable.computeIfAbsent(t, k -> new HashSet<>()).add(key);
+        Iterator<Map.Entry<String, Entry>> it = lru.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            it.remove();
+            unlink(e.getKey(), e.getValue());
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops the entries that read {@code table}, touching only those. Skips the lock when none are cached:
+     * a result being computed concurrently carries the older version in its key and is never served.
+     */
+    public void invalidate(String table) {
+        if (!byTable.containsKey(table)) return;
+        synchronized (this) {
+            Set<String> keys = byTable.remove(table);
+            if (keys == null) return;
+            for (String key : keys) {
+                Entry e = lru.remove(key);
+                if (e != null) unlink(key, e);
+            }
+        }
+    }
+
+    /** Accounts for an entry that has left the LRU and removes it from the per-table index. */
+    private void unlink(String key, Entry e) {
+        bytes -= e.bytes;
+        for (String t : e.tables) {
+            Set<String> keys = byTable.get(t);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) byTable.remove(t);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, lru.size(), bytes, maxBytes);
+    }
+}
@@ -1,14 +1,62 @@
 package com.minisqldb.catalog;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 
 public final class Catalog {
     /**
      * @param columns col -> type
+     * @param partitioning how rows spread over partition files, or null for a single file
      */
-    public record TableDef(String name, LinkedHashMap<String, String> columns) {
+    public record TableDef(String name, LinkedHashMap<String, String> columns, Partitioning partitioning) {
+        public TableDef(String name, LinkedHashMap<String, String> columns) {
+            this(name, columns, null);
+        }
+
+        public int partitionCount() {
+            return partitioning == null ? 1 : partitioning.partitions();
+        }
+    }
+
+    /**
+     * HASH: key mod partitions. RANGE (INT only): partition i holds keys below bounds[i], the last one the rest.
+     * Keys are the values {@code RowCodec.keyOf} yields for the partition column.
+     * @param bounds immutable, empty for HASH
+     */
+    public record Partitioning(Kind kind, String column, int partitions, List<Integer> bounds) {
+        public enum Kind { HASH, RANGE }
+
+        public Partitioning {
+            bounds = List.copyOf(bounds);
+        }
+
+        public static Partitioning hash(String column, int partitions) {
+            if (partitions < 1) throw new IllegalArgumentException("PARTITIONS must be >= 1");
+            return new Partitioning(Kind.HASH, column, partitions, List.of());
+        }
+
+        public static Partitioning range(String column, List<Integer> bounds) {
+            for (int i = 1; i < bounds.size(); i++) {
+                if (bounds.get(i) <= bounds.get(i - 1)) throw new IllegalArgumentException("RANGE bounds must be ascending");
+            }
+            return new Partitioning(Kind.RANGE, column, bounds.size() + 1, bounds);
+        }
+
+        public int partitionOf(int key) {
+            if (kind == Kind.HASH) return Math.floorMod(key, partitions);
+            int i = Collections.binarySearch(bounds, key);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.HASH
+                    ? "PARTITION BY HASH(" + column + ") PARTITIONS " + partitions
+                    : "PARTITION BY RANGE(" + column + ") BOUNDS " + bounds.toString().replace('[', '(').replace(']', ')');
+        }
     }
 
 
@@ -3,15 +3,18 @@ package com.minisqldb.config;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.List;
 
 
 public final class DatabaseConfig {
     public Path dataDir;
+    public List<Path> partitionDirs = List.of(); // partition i of a table goes to partitionDirs[i % size]; empty = dataDir/tables
 
 
     // Page & Buffering
     public int pageSizeBytes = 8192; // 8 KiB
     public int bufferPoolPages = 4096; // ~32 MiB at 8 KiB
+    public int readAheadBytes = 256 << 10; // per sequential-scan read; <= pageSizeBytes disables
 
 
     // WAL/Recovery
@@ -26,13 +29,24 @@ public final class DatabaseConfig {
     // Concurrency
     public int maxReaders = 64;
     public boolean singleWriter = true;
+    public int scanThreads = Runtime.getRuntime().availableProcessors(); // parallel partition scans
     public enum Isolation { READ_COMMITTED }
     public Isolation isolationLevel = Isolation.READ_COMMITTED;
 
 
+    // Query execution
+    public long sortMemoryBytes = 64L << 20; // ORDER BY buffer before spilling runs to dataDir/tmp
+    public long joinMemoryBytes = 64L << 20; // hash join build side before grace partitioning to dataDir/tmp
+
+
+    // Query result cache
+    public long resultCacheBytes = 0; // 0 disables
+
+
     // SQL/Types
     public Charset stringEncoding = StandardCharsets.UTF_8;
     public int maxVarCharBytes = 65535;
+    public int rowFormatVersion = 2; // for new table files (2 = per-row column offset header, 1 = original); existing files keep theirs
 
 
     // Diagnostics
@@ -0,0 +1,159 @@
+package com.minisqldb.exec;
+
+import com.minisqldb.table.Row;
+import com.minisqldb.table.RowCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Stable sort of any number of rows within a memory budget.
+ * Rows are buffered until the budget is reached, then sorted and spilled as a run file of
+ * [int len][codec bytes] records under {@code tmpDir}; {@link #forEachSorted} k-way merges the runs.
+ * The merge opens at most {@link #fanIn} runs at once, with read buffers sized so they fit the same
+ * budget; more runs than that are first merged in intermediate passes.
+ */
+public final class ExternalSorter implements AutoCloseable {
+    private static final int MIN_BUFFER = 1 << 10;
+    private static final int MAX_BUFFER = 64 << 10;
+    private static final int MAX_FAN_IN = 64;
+
+    private final RowCodec codec;
+    private final Comparator<Row> cmp;
+    private final long memoryBytes;
+    private final Path tmpDir;
+    private final int fanIn;
+    private final int bufferBytes; // per open run file, plus one for the output of a merge pass
+
+    private final List<Row> buffer = new ArrayList<>();
+    private long buffered;
+    private final List<Path> runs = new ArrayList<>();
+
+    public ExternalSorter(RowCodec codec, Comparator<Row> cmp, long memoryBytes, Path tmpDir) {
+        this.codec = codec;
+        this.cmp = cmp;
+        this.memoryBytes = memoryBytes;
+        this.tmpDir = tmpDir;
+        this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBytes / MIN_BUFFER - 1));
+        this.bufferBytes = (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, memoryBytes / (fanIn + 1)));
+    }
+
+    public void add(Row row) throws IOException {
+        buffer.add(row);
+        buffered += row.estimatedBytes();
+        if (buffered >= memoryBytes) spill();
+    }
+
+    /** Number of run files currently on disk. */
+    public int runCount() { return runs.size(); }
+
+    /** Most runs merged at once. */
+    int fanIn() { return fanIn; }
+
+    private void spill() throws IOException {
+        buffer.sort(cmp);
+        Files.createDirectories(tmpDir);
+        Path run = Files.createTempFile(tmpDir, "sort-", ".run");
+        runs.add(run);
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), bufferBytes))) {
+            for (Row r : buffer) {
+                byte[] b = codec.encode(r);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+        buffer.clear();
+        buffered = 0;
+    }
+
+    public void forEachSorted(Consumer<Row> sink) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(cmp);
+            buffer.forEach(sink);
+            return;
+        }
+        if (!buffer.isEmpty()) spill();
+        // each group of runs is replaced in place by its merge, so earlier rows stay in earlier runs
+        int at = 0;
+        while (runs.size() > fanIn) {
+            if (at >= runs.size() - 1) at = 0; // pass done, start the next
+            List<Path> group = new ArrayList<>(runs.subList(at, Math.min(at + fanIn, runs.size())));
+            Path merged = Files.createTempFile(tmpDir, "sort-", ".run");
+            runs.add(at, merged);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(merged), bufferBytes))) {
+                merge(group, (row, rec) -> {
+                    out.writeInt(rec.length);
+                    out.write(rec);
+                });
+            }
+            runs.subList(at + 1, at + 1 + group.size()).clear();
+            for (Path run : group) Files.deleteIfExists(run);
+            at++;
+        }
+        merge(runs, (row, rec) -> sink.accept(row));
+    }
+
+    private interface MergeSink { void accept(Row row, byte[] rec) throws IOException; }
+
+    private void merge(List<Path> inputs, MergeSink sink) throws IOException {
+        // ties go to the earlier run, which keeps the overall sort stable
+        PriorityQueue<Run> heap = new PriorityQueue<>((a, b) -> {
+            int c = cmp.compare(a.head, b.head);
+            return c != 0 ? c : Integer.compare(a.index, b.index);
+        });
+        List<Run> open = new ArrayList<>(inputs.size());
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Run r = new Run(i, inputs.get(i));
+                open.add(r);
+                if (r.advance()) heap.add(r);
+            }
+            while (!heap.isEmpty()) {
+                Run r = heap.poll();
+                sink.accept(r.head, r.rec);
+                if (r.advance()) heap.add(r);
+            }
+        } finally {
+            for (Run r : open) r.in.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) Files.deleteIfExists(run);
+        runs.clear();
+        buffer.clear();
+    }
+
+    private final class Run {
+        final int index;
+        final DataInputStream in;
+        Row head;
+        byte[] rec;
+
+        Run(int index, Path file) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), bufferBytes));
+        }
+
+        boolean advance() throws IOException {
+            int len;
+            try { len = in.readInt(); } catch (EOFException eof) { head = null; rec = null; return false; }
+            rec = new byte[len];
+            in.readFully(rec);
+            head = codec.decode(rec);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.minisqldb.exec;
+
+import com.minisqldb.table.RowCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Equi-join of two record streams. The build side is loaded into an int-keyed hash table that holds
+ * the encoded records as-is; the probe side is streamed against it.
+ * If the build side outgrows the memory budget, both sides are hash-partitioned to files under
+ * {@code tmpDir} and joined one partition pair at a time (grace hash join). A build partition that
+ * still exceeds the budget is split again on the next bits of the key hash; past {@link #MAX_LEVELS}
+ * (one dominant key) it is joined in budget-sized chunks instead.
+ */
+public final class HashJoin implements AutoCloseable {
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    private static final int MAX_LEVELS = 4; // level i partitions on bits [32 - 4(i+1), 32 - 4i) of mix(key)
+    private static final int IO_BUFFER = 16 << 10;
+
+    /** Source of encoded records, e.g. {@code HeapTable::forEachWhile}; stops once {@code v} returns false. */
+    public interface Records { boolean forEach(Predicate<byte[]> v) throws IOException; }
+
+    /** @return false to stop the join, e.g. once a LIMIT is reached */
+    public interface Emit { boolean accept(byte[] probeRec, byte[] buildRec); }
+
+    private final RowCodec build;
+    private final int buildCol;
+    private final RowCodec probe;
+    private final int probeCol;
+    private final boolean verify; // VARCHAR keys hash, so matches must be confirmed
+    private final long memoryBytes;
+    private final Path tmpDir;
+    private final List<Path> files = new ArrayList<>();
+    private final List<Partitions> partitions = new ArrayList<>();
+    private int levels;
+
+    public HashJoin(RowCodec build, int buildCol, RowCodec probe, int probeCol, long memoryBytes, Path tmpDir) {
+        if (build.isInt(buildCol) != probe.isInt(probeCol)) throw new IllegalArgumentException("Join key types differ");
+        this.build = build;
+        this.buildCol = buildCol;
+        this.probe = probe;
+        this.probeCol = probeCol;
+        this.verify = !build.isInt(buildCol);
+        this.memoryBytes = memoryBytes;
+        this.tmpDir = tmpDir;
+    }
+
+    /** @return true if the last {@link #run} had to partition to disk */
+    public boolean spilled() { return levels > 0; }
+
+    /** Partitioning levels the last {@link #run} needed: 0 in memory, 1 for one split, more if partitions were split again. */
+    public int levels() { return levels; }
+
+    public void run(Records buildSide, Records probeSide, Emit emit) throws IOException {
+        levels = 0;
+        try {
+            Table[] table = {new Table()};
+            Partitions[] buildParts = {null};
+            buildSide.forEach(rec -> {
+                int key = build.keyOf(rec, buildCol);
+                if (buildParts[0] != null) { buildParts[0].write(key, rec); return true; }
+                table[0].add(key, rec);
+                if (table[0].bytes > memoryBytes) {
+                    buildParts[0] = new Partitions("build", 0);
+                    table[0].drainTo(buildParts[0]);
+                    table[0] = null;
+                }
+                return true;
+            });
+            if (buildParts[0] == null) {
+                probeSide.forEach(rec -> probe(table[0], rec, emit));
+                return;
+            }
+            buildParts[0].finish();
+            Partitions probeParts = new Partitions("probe", 0);
+            probeSide.forEach(rec -> { probeParts.write(probe.keyOf(rec, probeCol), rec); return true; });
+            probeParts.finish();
+            joinPartitions(buildParts[0], probeParts, emit);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** @return false once {@code emit} asks to stop */
+    private boolean joinPartitions(Partitions buildParts, Partitions probeParts, Emit emit) throws IOException {
+        levels = Math.max(levels, buildParts.level + 1);
+        for (int p = 0; p < PARTITIONS; p++) {
+            Table t = load(buildParts, p);
+            if (t != null) {
+                if (t.size > 0 && !probeParts.read(p, (key, rec) -> probe(t, rec, emit))) return false;
+            } else if (buildParts.level + 1 < MAX_LEVELS) {
+                Partitions subBuild = buildParts.split(p);
+                Partitions subProbe = probeParts.split(p);
+                boolean more = joinPartitions(subBuild, subProbe, emit);
+                subBuild.delete();
+                subProbe.delete();
+                if (!more) return false;
+            } else if (!joinInChunks(buildParts, probeParts, p, emit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return partition {@code p} as a table, or null if it does not fit the memory budget */
+    private Table load(Partitions parts, int p) throws IOException {
+        Table t = new Table();
+        return parts.read(p, (key, rec) -> { t.add(key, rec); return t.bytes <= memoryBytes; }) ? t : null;
+    }
+
+    /** Last resort when the hash no longer splits a partition: probe it against each budget-sized chunk of the build side. */
+    private boolean joinInChunks(Partitions buildParts, Partitions probeParts, int p, Emit emit) throws IOException {
+        Table[] chunk = {new Table()};
+        boolean[] more = {true};
+        buildParts.read(p, (key, rec) -> {
+            chunk[0].add(key, rec);
+            if (chunk[0].bytes <= memoryBytes) return true;
+            Table full = chunk[0];
+            chunk[0] = new Table();
+            more[0] = probeParts.read(p, (k, r) -> probe(full, r, emit));
+            return more[0];
+        });
+        Table last = chunk[0];
+        return more[0] && (last.size == 0 || probeParts.read(p, (key, rec) -> probe(last, rec, emit)));
+    }
+
+    /** @return false once {@code emit} asks to stop */
+    private boolean probe(Table t, byte[] rec, Emit emit) {
+        int key = probe.keyOf(rec, probeCol);
+        for (int e = t.first(key); e >= 0; e = t.next[e]) {
+            if (verify && !probe.sameValue(rec, probeCol, build, t.rows[e], buildCol)) continue;
+            if (!emit.accept(rec, t.rows[e])) return false;
+        }
+        return true;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Partitions p : partitions) p.finish();
+        partitions.clear();
+        for (Path f : files) Files.deleteIfExists(f);
+        files.clear();
+    }
+
+    /** @return false to stop reading */
+    private interface KeyedRecord { boolean accept(int key, byte[] rec) throws IOException; }
+
+    /**
+     * Open-addressed key index over chained entries; entries keep insertion order per key.
+     * Records are stored encoded, so the table holds one byte[] per row and no boxed values.
+     */
+    private static final class Table {
+        int[] slotKeys = new int[64];
+        int[] heads = new int[64]; // entry + 1, 0 = empty
+        int[] tails = new int[64];
+        int[] keys = new int[64];
+        int[] next = new int[64];
+        byte[][] rows = new byte[64][];
+        int size;
+        long bytes;
+
+        void add(int key, byte[] rec) {
+            if (size == rows.length) {
+                int cap = size * 2;
+                keys = Arrays.copyOf(keys, cap);
+                next = Arrays.copyOf(next, cap);
+                rows = Arrays.copyOf(rows, cap);
+            }
+            if ((size + 1) * 2 > heads.length) rehash(heads.length * 2);
+            int e = size++;
+            keys[e] = key;
+            rows[e] = rec;
+            link(e);
+            bytes += rec.length + 40L; // array header + ref + index entries
+        }
+
+        private void link(int e) {
+            int mask = heads.length - 1;
+            int i = mix(keys[e]) & mask;
+            while (heads[i] != 0 && slotKeys[i] != keys[e]) i = (i + 1) & mask;
+            next[e] = -1;
+            if (heads[i] == 0) {
+                slotKeys[i] = keys[e];
+                heads[i] = e + 1;
+            } else {
+                next[tails[i] - 1] = e;
+            }
+            tails[i] = e + 1;
+        }
+
+        private void rehash(int cap) {
+            slotKeys = new int[cap];
+            heads = new int[cap];
+            tails = new int[cap];
+            for (int e = 0; e < size; e++) link(e);
+        }
+
+        /** @return first entry for key, or -1; follow {@link #next} for the rest */
+        int first(int key) {
+            int mask = heads.length - 1;
+            int i = mix(key) & mask;
+            while (heads[i] != 0) {
+                if (slotKeys[i] == key) return heads[i] - 1;
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void drainTo(Partitions parts) {
+            for (int e = 0; e < size; e++) parts.write(keys[e], rows[e]);
+        }
+    }
+
+    /** One spill file per partition of [int key][int len][bytes] records. */
+    private final class Partitions {
+        private final String side;
+        private final int level;
+        private final Path[] paths = new Path[PARTITIONS];
+        private final DataOutputStream[] outs = new DataOutputStream[PARTITIONS];
+
+        Partitions(String side, int level) {
+            this.side = side;
+            this.level = level;
+            partitions.add(this);
+            try {
+                Files.createDirectories(tmpDir);
+                for (int p = 0; p < PARTITIONS; p++) {
+                    paths[p] = Files.createTempFile(tmpDir, "join-" + side + "-" + level + "-" + p + "-", ".part");
+                    files.add(paths[p]);
+                    outs[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(paths[p]), IO_BUFFER));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(int key, byte[] rec) {
+            // each level takes the next bits down from the top; the in-memory table indexes on the low bits
+            int h = Integer.rotateLeft(mix(key), level * PARTITION_BITS);
+            DataOutputStream out = outs[h >>> (32 - PARTITION_BITS)];
+            try {
+                out.writeInt(key);
+                out.writeInt(rec.length);
+                out.write(rec);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            for (DataOutputStream out : outs) if (out != null) out.close();
+        }
+
+        /** Partition {@code p} re-partitioned on the next level's hash bits. */
+        Partitions split(int p) throws IOException {
+            Partitions sub = new Partitions(side, level + 1);
+            read(p, (key, rec) -> { sub.write(key, rec); return true; });
+            sub.finish();
+            return sub;
+        }
+
+        void delete() throws IOException {
+            finish();
+            partitions.remove(this);
+            for (Path path : paths) {
+                files.remove(path);
+                Files.deleteIfExists(path);
+            }
+        }
+
+        /** @return false if the sink stopped reading */
+        boolean read(int p, KeyedRecord sink) throws IOException {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(paths[p]), IO_BUFFER))) {
+                while (true) {
+                    int key;
+                    try { key = in.readInt(); } catch (EOFException eof) { return true; }
+                    byte[] rec = new byte[in.readInt()];
+                    in.readFully(rec);
+                    if (!sink.accept(key, rec)) return false;
+                }
+            }
+        }
+    }
+}
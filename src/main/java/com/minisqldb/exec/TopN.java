@@ -0,0 +1,46 @@
+package com.minisqldb.exec;
+
+import com.minisqldb.table.Row;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * First {@code n} rows under an ordering, kept in a bounded heap whose head is the current worst row.
+ * Ties keep arrival order.
+ */
+public final class TopN {
+    private record Ranked(Row row, long seq) {}
+
+    private final int n;
+    private final Comparator<Ranked> order;
+    private final PriorityQueue<Ranked> heap;
+    private long seq;
+
+    public TopN(int n, Comparator<Row> cmp) {
+        this.n = n;
+        this.order = Comparator.<Ranked, Row>comparing(Ranked::row, cmp).thenComparingLong(Ranked::seq);
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(n, 1024)), order.reversed());
+    }
+
+    public void add(Row row) {
+        if (n == 0) return;
+        Ranked r = new Ranked(row, seq++);
+        if (heap.size() < n) {
+            heap.add(r);
+        } else if (order.compare(r, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(r);
+        }
+    }
+
+    public List<Row> sorted() {
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        List<Row> out = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) out.add(r.row());
+        return out;
+    }
+}
@@ -5,12 +5,31 @@ import com.minisqldb.catalog.Catalog;
 import java.util.*;
 
 /**
- * Tiny parser for: CREATE TABLE and single-row INSERT with explicit column list.
+ * Tiny parser for: CREATE TABLE [PARTITION BY ...], single-row INSERT with explicit column list,
+ * and SELECT * or a column list with optional two-table JOIN ... ON, WHERE col = val, ORDER BY and LIMIT.
  */
 public final class SqlMiniParser {
-    public record CreateTable(String name, LinkedHashMap<String,String> columns, boolean ifNotExists) {}
+    public record CreateTable(String name, LinkedHashMap<String,String> columns, boolean ifNotExists,
+                              Catalog.Partitioning partitioning) {
+        public CreateTable(String name, LinkedHashMap<String,String> columns, boolean ifNotExists) {
+            this(name, columns, ifNotExists, null);
+        }
+    }
     public record InsertInto(String table, List<String> columns, List<String> values) {}
-    public record Select(String table, String whereCol, String whereVal) {}
+    /** {@code JOIN table ON <left table>.leftColumn = table.rightColumn} */
+    public record Join(String table, String leftColumn, String rightColumn) {}
+    /**
+     * @param orderBy sort column, or null for scan order
+     * @param limit max rows, or -1 for no limit
+     * @param join joined table, or null for a single-table scan
+     * @param columns projected columns in output order, or null for {@code *}
+     */
+    public record Select(String table, String whereCol, String whereVal, String orderBy, boolean descending, int limit,
+                         Join join, List<String> columns) {
+        public Select(String table, String whereCol, String whereVal) {
+            this(table, whereCol, whereVal, null, false, -1, null, null);
+        }
+    }
 
 
     public static boolean isCreateTable(String sql) { return sql.trim().toUpperCase(Locale.ROOT).startsWith("CREATE TABLE"); }
@@ -29,6 +48,11 @@ public final class SqlMiniParser {
         } else {
             startName = "CREATE TABLE".length();
         }
+        // ... (col TYPE, ...) [PARTITION BY HASH(col) PARTITIONS n | PARTITION BY RANGE(col) BOUNDS (b1, b2, ...)]
+        int partIdx = indexOfKeyword(up, "PARTITION BY", 0);
+        Catalog.Partitioning partitioning = partIdx < 0 ? null
+                : parsePartitioning(s.substring(matchKeyword(up, "PARTITION BY", partIdx)).trim());
+        if (partIdx >= 0) s = s.substring(0, partIdx).trim();
         int paren = s.indexOf('(');
         String name = s.substring(startName, paren).trim();
         int end = s.lastIndexOf(')');
@@ -40,7 +64,32 @@ public final class SqlMiniParser {
                 cols.put(kv[0].trim(), kv[1].trim().toUpperCase(Locale.ROOT));
             }
         }
-        return new CreateTable(name, cols, ifNotExists);
+        return new CreateTable(name, cols, ifNotExists, partitioning);
+    }
+
+    private static Catalog.Partitioning parsePartitioning(String spec) {
+        String up = spec.toUpperCase(Locale.ROOT);
+        int lp = spec.indexOf('('), rp = spec.indexOf(')');
+        if (lp < 0 || rp < lp) throw new IllegalArgumentException("Expected PARTITION BY HASH(col) or RANGE(col)");
+        String kind = up.substring(0, lp).trim();
+        String column = spec.substring(lp + 1, rp).trim();
+        String rest = spec.substring(rp + 1).trim();
+        String restUp = rest.toUpperCase(Locale.ROOT);
+        try {
+            if (kind.equals("HASH") && restUp.startsWith("PARTITIONS")) {
+                return Catalog.Partitioning.hash(column, Integer.parseInt(rest.substring(10).trim()));
+            }
+            if (kind.equals("RANGE") && restUp.startsWith("BOUNDS")) {
+                String list = rest.substring(6).trim();
+                if (!list.startsWith("(") || !list.endsWith(")")) throw new IllegalArgumentException("Expected BOUNDS (b1, b2, ...)");
+                List<Integer> bounds = Arrays.stream(list.substring(1, list.length() - 1).split(","))
+                        .map(String::trim).map(Integer::valueOf).toList();
+                return Catalog.Partitioning.range(column, bounds);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad partition spec: " + spec);
+        }
+        throw new IllegalArgumentException("Expected HASH(col) PARTITIONS n or RANGE(col) BOUNDS (b1, ...)");
     }
 
 
@@ -66,25 +115,140 @@ public final class SqlMiniParser {
 
 
     public static Select parseSelect(String sql) {
-        String up = sql.toUpperCase(Locale.ROOT);
+        String s = sql.trim();
+        String up = s.toUpperCase(Locale.ROOT);
         if (!up.startsWith("SELECT")) throw new IllegalArgumentException();
-        // SELECT * FROM table [WHERE col = val]
-        String[] parts = up.split("\\s+");
-        int fromIdx = Arrays.asList(parts).indexOf("FROM");
+        // SELECT {* | col, ...} FROM table [[INNER] JOIN other ON table.col = other.col]
+        //     [WHERE col = val] [ORDER BY col [ASC|DESC]] [LIMIT n]
+        int fromIdx = indexOfKeyword(up, "FROM", 0);
         if (fromIdx < 0) throw new IllegalArgumentException("Missing FROM");
-        String table = sql.split("FROM")[1].trim().split(" ")[0].trim();
+        int whereIdx = indexOfKeyword(up, "WHERE", fromIdx);
+        int orderIdx = indexOfKeyword(up, "ORDER BY", fromIdx);
+        int limitIdx = indexOfKeyword(up, "LIMIT", fromIdx);
+
+        String projection = s.substring(6, fromIdx).trim();
+        List<String> columns = null;
+        if (!projection.equals("*")) {
+            columns = Arrays.stream(projection.split(",")).map(String::trim).toList();
+            if (columns.contains("")) throw new IllegalArgumentException("Expected SELECT * or SELECT col, ...");
+        }
+        String table = s.substring(fromIdx + 4, clauseEnd(s, fromIdx, whereIdx, orderIdx, limitIdx)).trim();
+        Join join = null;
+        int joinIdx = indexOfKeyword(table.toUpperCase(Locale.ROOT), "JOIN", 0);
+        if (joinIdx >= 0) {
+            String rest = table.substring(joinIdx + 4);
+            table = table.substring(0, joinIdx).trim();
+            if (table.toUpperCase(Locale.ROOT).endsWith(" INNER")) table = table.substring(0, table.length() - 6).trim();
+            join = parseJoin(table, rest);
+        }
         String whereCol = null, whereVal = null;
-        int whereIdx = up.indexOf("WHERE");
         if (whereIdx >= 0) {
-            String cond = sql.substring(whereIdx + 5).trim();
-            String[] kv = cond.split("=");
+            String cond = s.substring(whereIdx + 5, clauseEnd(s, whereIdx, orderIdx, limitIdx)).trim();
+            String[] kv = cond.split("=", 2);
+            if (kv.length < 2) throw new IllegalArgumentException("Expected WHERE col = value");
             whereCol = kv[0].trim();
             whereVal = kv[1].trim();
             if (whereVal.startsWith("'") && whereVal.endsWith("'")) {
                 whereVal = whereVal.substring(1, whereVal.length()-1);
             }
         }
-        return new Select(table, whereCol, whereVal);
+        String orderBy = null;
+        boolean descending = false;
+        if (orderIdx >= 0) {
+            String[] ob = s.substring(matchKeyword(up, "ORDER BY", orderIdx), clauseEnd(s, orderIdx, limitIdx)).trim().split("\\s+");
+            orderBy = ob[0];
+            if (orderBy.isEmpty()) throw new IllegalArgumentException("Expected ORDER BY col");
+            if (ob.length > 1) {
+                switch (ob[1].toUpperCase(Locale.ROOT)) {
+                    case "ASC" -> descending = false;
+                    case "DESC" -> descending = true;
+                    default -> throw new IllegalArgumentException("Expected ASC or DESC: " + ob[1]);
+                }
+            }
+        }
+        int limit = -1;
+        if (limitIdx >= 0) {
+            String n = s.substring(limitIdx + 5).trim();
+            try { limit = Integer.parseInt(n); } catch (NumberFormatException e) { throw new IllegalArgumentException("Bad LIMIT: " + n); }
+            if (limit < 0) throw new IllegalArgumentException("Bad LIMIT: " + n);
+        }
+        return new Select(table, whereCol, whereVal, orderBy, descending, limit, join, columns);
+    }
+
+    /**
+     * Parses {@code other ON a.x = b.y} after the JOIN keyword. Qualifiers must name {@code from} or
+     * {@code other}, one side each, in either order; an unqualified side takes whichever table is left.
+     */
+    private static Join parseJoin(String from, String rest) {
+        rest = rest.trim();
+        int onIdx = indexOfKeyword(rest.toUpperCase(Locale.ROOT), "ON", 0);
+        if (onIdx < 0) throw new IllegalArgumentException("Expected JOIN table ON a.col = b.col");
+        String other = rest.substring(0, onIdx).trim();
+        String[] on = rest.substring(onIdx + 2).split("=", 2);
+        if (other.isEmpty() || on.length < 2) throw new IllegalArgumentException("Expected JOIN table ON a.col = b.col");
+        if (from.equals(other)) throw new IllegalArgumentException("Self-join is not supported: " + from);
+        String l = on[0].trim(), r = on[1].trim();
+        String lq = qualifier(l, from, other), rq = qualifier(r, from, other);
+        if (lq != null && lq.equals(rq)) {
+            throw new IllegalArgumentException("JOIN ON must compare a column of " + from + " with one of " + other);
+        }
+        if (other.equals(lq) || from.equals(rq)) { String t = l; l = r; r = t; }
+        return new Join(other, unqualified(l), unqualified(r));
+    }
+
+    /** @return the table a {@code table.col} reference names, or null if unqualified */
+    private static String qualifier(String col, String from, String other) {
+        int dot = col.lastIndexOf('.');
+        if (dot < 0) return null;
+        String table = col.substring(0, dot).trim();
+        if (!table.equals(from) && !table.equals(other)) throw new IllegalArgumentException("Unknown table in JOIN ON: " + table);
+        return table;
+    }
+
+    private static String unqualified(String col) {
+        int dot = col.lastIndexOf('.');
+        return dot < 0 ? col : col.substring(dot + 1).trim();
+    }
+
+    /** End of the clause starting at {@code start}: the nearest later clause keyword, else end of input. */
+    private static int clauseEnd(String s, int start, int... next) {
+        int end = s.length();
+        for (int n : next) if (n > start && n < end) end = n;
+        return end;
+    }
+
+    /**
+     * Position of a whole-word keyword outside quoted literals, or -1; identifier characters such as
+     * {@code _} continue a word, so {@code limit_n} is not LIMIT. {@code up} must be upper-cased.
+     */
+    private static int indexOfKeyword(String up, String kw, int from) {
+        boolean quoted = false;
+        for (int i = from; i < up.length(); i++) {
+            char c = up.charAt(i);
+            if (c == '\'') { quoted = !quoted; continue; }
+            if (quoted) continue;
+            int after = matchKeyword(up, kw, i);
+            if (after < 0) continue;
+            boolean startOk = i == 0 || !Character.isJavaIdentifierPart(up.charAt(i - 1));
+            boolean endOk = after == up.length() || !Character.isJavaIdentifierPart(up.charAt(after));
+            if (startOk && endOk) return i;
+        }
+        return -1;
+    }
+
+    /** End of {@code kw} if it starts at {@code i}, each space in it matching any run of whitespace; else -1. */
+    private static int matchKeyword(String up, String kw, int i) {
+        for (int k = 0; k < kw.length(); k++) {
+            if (kw.charAt(k) == ' ') {
+                int start = i;
+                while (i < up.length() && Character.isWhitespace(up.charAt(i))) i++;
+                if (i == start) return -1;
+            } else {
+                if (i >= up.length() || up.charAt(i) != kw.charAt(k)) return -1;
+                i++;
+            }
+        }
+        return i;
     }
 
 
@@ -98,7 +262,9 @@ public final class SqlMiniParser {
                 sb.append(e.getKey()).append(" ").append(e.getValue());
                 first = false;
             }
-            sb.append(")\n");
+            sb.append(")");
+            if (def.partitioning() != null) sb.append(" ").append(def.partitioning());
+            sb.append("\n");
         });
         return sb.toString();
     }
@@ -4,20 +4,61 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Append-only heap table over a file of fixed-size pages.
- * Page layout: [int used] then sequence of [int rowLen][rowBytes].
+ * Page {@link Page#META_PAGE_ID} is the file header: [int MAGIC][int rowFormat]; data pages follow.
+ * Data page layout: [int used] then sequence of [int rowLen][rowBytes].
+ * Files from before the header start directly with a data page and hold row format 1.
  */
 public final class HeapTable implements AutoCloseable {
     private static final int HEADER_USED = 0; // offset of used pointer
     private static final int HEADER_BYTES = 4;
+    private static final int MAGIC = 0x4D534442; // "MSDB"; larger than any used pointer, so it marks a header page
+    private static final int LEGACY_ROW_FORMAT = 1;
 
 
     private final Pager pager;
+    private final int rowFormat;
+    private final int firstDataPage;
 
 
-    public HeapTable(Path file, int pageSize) throws IOException { this.pager = new Pager(file, pageSize); }
+    public HeapTable(Path file, int pageSize) throws IOException { this(file, pageSize, 1); }
+
+    public HeapTable(Path file, int pageSize, int readAheadPages) throws IOException {
+        this(file, pageSize, readAheadPages, LEGACY_ROW_FORMAT);
+    }
+
+    /**
+     * @param rowFormat row layout written to the header of a new (empty) file; an existing file keeps its own,
+     *                  see {@link #rowFormat()}
+     */
+    public HeapTable(Path file, int pageSize, int readAheadPages, int rowFormat) throws IOException {
+        this.pager = new Pager(file, pageSize, readAheadPages);
+        try {
+            if (pager.pageCount() == 0) {
+                Page meta = pager.read(pager.allocateNewPage());
+                meta.getBuf().putInt(0, MAGIC).putInt(4, rowFormat);
+                pager.write(meta);
+                this.rowFormat = rowFormat;
+                this.firstDataPage = Page.META_PAGE_ID + 1;
+            } else {
+                ByteBuffer meta = pager.read(Page.META_PAGE_ID).getBuf();
+                boolean header = meta.getInt(0) == MAGIC;
+                this.rowFormat = header ? meta.getInt(4) : LEGACY_ROW_FORMAT;
+                this.firstDataPage = header ? Page.META_PAGE_ID + 1 : 0;
+            }
+        } catch (IOException | RuntimeException e) {
+            pager.close();
+            throw e;
+        }
+    }
+
+    /** Row layout of every record in this file, as recorded in its header. */
+    public int rowFormat() {
+        return rowFormat;
+    }
 
 
     private void initIfNeeded(Page p) {
@@ -39,7 +80,7 @@ public final class HeapTable implements AutoCloseable {
 
 
         int pages = pager.pageCount();
-        int pid = (pages == 0) ? pager.allocateNewPage() : pages - 1;
+        int pid = (pages <= firstDataPage) ? pager.allocateNewPage() : pages - 1;
         Page page = pager.read(pid);
         initIfNeeded(page);
         int u = used(page);
@@ -58,9 +99,17 @@ public final class HeapTable implements AutoCloseable {
     }
 
 
-    public synchronized void forEach(Consumer<byte[]> v) throws IOException {
+    public void forEach(Consumer<byte[]> v) throws IOException {
+        forEachWhile(rec -> { v.accept(rec); return true; });
+    }
+
+    /**
+     * Visits records in insertion order until {@code v} returns false; later pages are never read.
+     * @return false if the visitor stopped the scan
+     */
+    public synchronized boolean forEachWhile(Predicate<byte[]> v) throws IOException {
         int pages = pager.pageCount();
-        for (int id = 0; id < pages; id++) {
+        for (int id = firstDataPage; id < pages; id++) {
             Page p = pager.read(id);
             int u = used(p);
             ByteBuffer b = p.getBuf().duplicate();
@@ -71,10 +120,11 @@ public final class HeapTable implements AutoCloseable {
                 byte[] rec = new byte[len];
                 b.position(pos + 4);
                 b.get(rec, 0, len);
-                v.accept(rec);
+                if (!v.test(rec)) return false;
                 pos += 4 + len;
             }
         }
+        return true;
     }
 
 
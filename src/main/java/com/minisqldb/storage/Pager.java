@@ -8,18 +8,44 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Pager implements AutoCloseable {
+    // Shared background reader for read-ahead windows; daemon so it never blocks exit.
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pager-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
     private final Path file;
     private final int pageSize;
+    private final int readAheadPages;
     private final FileChannel ch;
 
     // Tiny cache (not LRU yet)
     private final Map<Integer, Page> cache = new HashMap<>();
 
+    // Sequential-scan detection and the in-flight prefetch of the next window
+    private int lastMiss = -2;
+    private int prefetchStart = -1;
+    private CompletableFuture<ByteBuffer> prefetch;
+    private final AtomicInteger fileReads = new AtomicInteger(); // positional reads, window or single page
+
     public Pager(Path file, int pageSize) throws IOException {
+        this(file, pageSize, 1);
+    }
+
+    /**
+     * @param readAheadPages pages fetched per read once misses turn sequential; 1 disables read-ahead
+     */
+    public Pager(Path file, int pageSize, int readAheadPages) throws IOException {
         this.file = file;
         this.pageSize = pageSize;
+        this.readAheadPages = Math.max(1, readAheadPages);
         Files.createDirectories(file.getParent());
         this.ch = FileChannel.open(file,
                 StandardOpenOption.CREATE,
@@ -37,9 +63,28 @@ public final class Pager implements AutoCloseable {
     public synchronized Page read(int pageId) throws IOException {
         Page cached = cache.get(pageId);
         if (cached != null) return cached;
+        boolean sequential = pageId == lastMiss + 1;
+        lastMiss = pageId;
+        if (prefetch != null && pageId >= prefetchStart && pageId < prefetchStart + readAheadPages) {
+            ByteBuffer window = awaitPrefetch();
+            if (window != null) {
+                int start = prefetchStart;
+                lastMiss = install(start, window);
+                schedulePrefetch(start + readAheadPages);
+                Page p = cache.get(pageId);
+                if (p != null) return p;
+            }
+        }
+        if (sequential && readAheadPages > 1) {
+            lastMiss = install(pageId, readWindow(pageId));
+            schedulePrefetch(pageId + readAheadPages);
+            Page p = cache.get(pageId);
+            if (p != null) return p;
+        }
         ByteBuffer buf = ByteBuffer.allocateDirect(pageSize);
         long pos = (long) pageId * pageSize;
         ByteBuffer tmp = ByteBuffer.allocate(pageSize);
+        fileReads.incrementAndGet();
         ch.read(tmp, pos);
         tmp.flip();
         buf.put(tmp);
@@ -49,6 +94,54 @@ public final class Pager implements AutoCloseable {
         return p;
     }
 
+    /** One positional read of up to readAheadPages pages starting at firstPage. */
+    private ByteBuffer readWindow(int firstPage) throws IOException {
+        long pos = (long) firstPage * pageSize;
+        long avail = ch.size() - pos;
+        int bytes = (int) Math.max(0, Math.min((long) readAheadPages * pageSize, avail - avail % pageSize));
+        ByteBuffer window = ByteBuffer.allocateDirect(bytes);
+        fileReads.incrementAndGet();
+        while (window.hasRemaining()) {
+            if (ch.read(window, pos + window.position()) < 0) break;
+        }
+        window.flip();
+        return window;
+    }
+
+    /**
+     * Split a window into pages; pages already cached win since they may hold unflushed writes.
+     * @return id of the last page in the window, so the next miss still counts as sequential
+     */
+    private int install(int firstPage, ByteBuffer window) {
+        int pages = window.limit() / pageSize;
+        for (int i = 0; i < pages; i++) {
+            ByteBuffer slice = window.slice(i * pageSize, pageSize);
+            cache.putIfAbsent(firstPage + i, new Page(firstPage + i, slice));
+        }
+        return firstPage + pages - 1;
+    }
+
+    private void schedulePrefetch(int firstPage) throws IOException {
+        prefetch = null;
+        if ((long) firstPage * pageSize >= ch.size() || cache.containsKey(firstPage)) return;
+        prefetchStart = firstPage;
+        prefetch = CompletableFuture.supplyAsync(() -> {
+            try { return readWindow(firstPage); }
+            catch (IOException e) { throw new RuntimeException(e); }
+        }, PREFETCH);
+    }
+
+    /** @return the prefetched window, or null if it failed (the caller falls back to a direct read) */
+    private ByteBuffer awaitPrefetch() {
+        CompletableFuture<ByteBuffer> f = prefetch;
+        prefetch = null;
+        try {
+            return f.join();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     public synchronized void write(Page page) throws IOException {
         ByteBuffer buf = page.getBuf().duplicate();
         buf.rewind();
@@ -72,8 +165,14 @@ public final class Pager implements AutoCloseable {
         ch.force(true);
     }
 
+    /** Reads issued against the file so far, counting a read-ahead window once. */
+    int fileReads() {
+        return fileReads.get();
+    }
+
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
+        if (prefetch != null) prefetch.cancel(false);
         ch.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.minisqldb.table;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded row of a {@link RowCodec}: INT columns in a primitive array, VARCHARs in a String array.
+ */
+public final class Row {
+    private final RowCodec codec;
+    final int[] ints;
+    final String[] strings;
+
+    Row(RowCodec codec, int[] ints, String[] strings) {
+        this.codec = codec;
+        this.ints = ints;
+        this.strings = strings;
+    }
+
+    public RowCodec codec() { return codec; }
+
+    public int getInt(int col) { return ints[codec.slot(col)]; }
+
+    public String getString(int col) { return strings[codec.slot(col)]; }
+
+    public Row setInt(int col, int value) {
+        if (!codec.isInt(col)) throw new IllegalArgumentException("Not an INT column: " + codec.columnName(col));
+        ints[codec.slot(col)] = value;
+        return this;
+    }
+
+    public Row setString(int col, String value) {
+        if (codec.isInt(col)) throw new IllegalArgumentException("Not a VARCHAR column: " + codec.columnName(col));
+        strings[codec.slot(col)] = value;
+        return this;
+    }
+
+    public Object get(int col) {
+        return codec.isInt(col) ? (Object) getInt(col) : getString(col);
+    }
+
+    public Object get(String column) {
+        int col = codec.indexOf(column);
+        return col < 0 ? null : get(col);
+    }
+
+    /** Rough heap footprint, used for sort/join memory budgets. */
+    public long estimatedBytes() {
+        long n = 48 + 4L * ints.length + 8L * strings.length;
+        for (String s : strings) if (s != null) n += 40 + 2L * s.length();
+        return n;
+    }
+
+    public Map<String, Object> toMap() {
+        LinkedHashMap<String, Object> out = new LinkedHashMap<>();
+        for (int i = 0; i < codec.columnCount(); i++) out.put(codec.columnName(i), get(i));
+        return out;
+    }
+
+    /** Same text as the {@code LinkedHashMap} rows the REPL has always printed. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = 0; i < codec.columnCount(); i++) appendColumn(sb, i);
+        return sb.append('}').toString();
+    }
+
+    /** {@link #toString()} restricted to the given columns, in that order. */
+    public String toString(int[] cols) {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int col : cols) appendColumn(sb, col);
+        return sb.append('}').toString();
+    }
+
+    private void appendColumn(StringBuilder sb, int col) {
+        if (sb.length() > 1) sb.append(", ");
+        sb.append(codec.columnName(col)).append('=');
+        if (codec.isInt(col)) sb.append(getInt(col)); else sb.append(getString(col));
+    }
+}
@@ -0,0 +1,362 @@
+package com.minisqldb.table;
+
+import com.minisqldb.catalog.Catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Row encoder/decoder specialized for one {@link Catalog.TableDef}.
+ * Column names, types and value slots are resolved once when the codec is built,
+ * so encode/decode walk flat arrays instead of switching on type strings per row.
+ * Decoded INT columns stay primitive in {@link Row}.
+ * <p>
+ * Record layouts:
+ * <ul>
+ *   <li>{@link #V1}: columns in order, INT = 4 bytes, VARCHAR = [int len][bytes].</li>
+ *   <li>{@link #V2}: [u16 offset of each column after the first VARCHAR] then columns in order,
+ *       INT = 4 bytes, VARCHAR = bytes up to the next column (or record end). Any column is found
+ *       in O(1): columns up to the first VARCHAR sit at fixed offsets, the rest are in the header.</li>
+ * </ul>
+ */
+public final class RowCodec {
+    public static final int V1 = 1;
+    public static final int V2 = 2;
+
+    static final byte INT = 0;
+    static final byte VARCHAR = 1;
+
+    private final String table;
+    private final String[] names;
+    private final byte[] types;
+    private final int[] slots; // index into Row.ints or Row.strings
+    private final int intCount;
+    private final int stringCount;
+    private final int version;
+    private final int firstVar; // first VARCHAR column, or column count if none
+    private final int headerBytes; // V2 offset table
+    private final int fixedBytes; // header + INT columns (+ VARCHAR length prefixes in V1)
+    private final Map<String, Integer> index;
+    private final Set<String> ambiguous = new HashSet<>(); // joined codecs: unqualified names both sides have
+    private final Charset enc;
+
+    private RowCodec(Catalog.TableDef def, Charset enc, int version) {
+        if (version != V1 && version != V2) throw new IllegalArgumentException("Unsupported row format version: " + version);
+        int n = def.columns().size();
+        this.table = def.name();
+        this.names = new String[n];
+        this.types = new byte[n];
+        this.slots = new int[n];
+        this.index = new HashMap<>(n * 2);
+        this.enc = enc;
+        this.version = version;
+        int ints = 0, strings = 0, i = 0;
+        for (var e : def.columns().entrySet()) {
+            names[i] = e.getKey();
+            index.put(e.getKey(), i);
+            switch (e.getValue()) {
+                case "INT" -> { types[i] = INT; slots[i] = ints++; }
+                case "VARCHAR" -> { types[i] = VARCHAR; slots[i] = strings++; }
+                default -> throw new IllegalArgumentException("Unsupported type: " + e.getValue());
+            }
+            i++;
+        }
+        this.intCount = ints;
+        this.stringCount = strings;
+        int fv = 0;
+        while (fv < n && types[fv] == INT) fv++;
+        this.firstVar = fv;
+        this.headerBytes = version == V2 ? 2 * Math.max(0, n - fv - 1) : 0;
+        this.fixedBytes = version == V2 ? headerBytes + 4 * ints : 4 * n;
+    }
+
+    /**
+     * {@link #V1} codec. Only the {@link RowFormat} helpers assume it; table files record their own
+     * layout, see {@code HeapTable#rowFormat()}.
+     */
+    public static RowCodec of(Catalog.TableDef def, Charset enc) {
+        return new RowCodec(def, enc, V1);
+    }
+
+    public static RowCodec of(Catalog.TableDef def, Charset enc, int version) {
+        return new RowCodec(def, enc, version);
+    }
+
+    /**
+     * In-memory codec over a subset of this codec's columns, in the given order, for projected rows.
+     * Fill it with {@link #decode(byte[], RowCodec, int[])}.
+     */
+    public RowCodec project(int[] cols) {
+        LinkedHashMap<String, String> sub = new LinkedHashMap<>();
+        for (int c : cols) sub.put(names[c], types[c] == INT ? "INT" : "VARCHAR");
+        return new RowCodec(new Catalog.TableDef(table, sub), enc, version);
+    }
+
+    /**
+     * Codec for rows of {@code left JOIN right}: columns are named {@code table.col}, left first.
+     * Unqualified names resolve too when they are unique across both sides; {@link #indexOf} rejects the others.
+     */
+    public static RowCodec joined(RowCodec left, RowCodec right) {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        for (RowCodec side : new RowCodec[]{left, right}) {
+            for (int i = 0; i < side.names.length; i++) {
+                cols.put(side.table + "." + side.names[i], side.types[i] == INT ? "INT" : "VARCHAR");
+            }
+        }
+        RowCodec joined = new RowCodec(new Catalog.TableDef(left.table + " JOIN " + right.table, cols), left.enc, left.version);
+        for (int i = 0; i < left.names.length; i++) {
+            if (right.indexOf(left.names[i]) < 0) joined.index.put(left.names[i], i);
+            else joined.ambiguous.add(left.names[i]);
+        }
+        for (int i = 0; i < right.names.length; i++) {
+            if (left.indexOf(right.names[i]) < 0) joined.index.put(right.names[i], left.names.length + i);
+        }
+        return joined;
+    }
+
+    public String table() { return table; }
+
+    public int version() { return version; }
+
+    public int columnCount() { return names.length; }
+
+    public String columnName(int col) { return names[col]; }
+
+    public boolean isInt(int col) { return types[col] == INT; }
+
+    /**
+     * @return column position, or -1 if the table has no such column
+     * @throws IllegalArgumentException for an unqualified name that both sides of a {@link #joined} codec have
+     */
+    public int indexOf(String column) {
+        Integer i = index.get(column);
+        if (i != null) return i;
+        if (ambiguous.contains(column)) throw new IllegalArgumentException("Ambiguous column: " + column + " (qualify it with its table)");
+        return -1;
+    }
+
+    public byte[] encode(Map<String, Object> values) {
+        return encode(row(values));
+    }
+
+    /** Row holding {@code values} by column name; INT columns accept numbers or numeric strings. */
+    public Row row(Map<String, Object> values) {
+        Row row = newRow();
+        for (int i = 0; i < names.length; i++) {
+            Object v = values.get(names[i]);
+            if (v == null) throw new IllegalArgumentException("Missing value for column " + names[i]);
+            if (types[i] == INT) {
+                row.ints[slots[i]] = (v instanceof Number num) ? num.intValue() : Integer.parseInt(v.toString());
+            } else {
+                row.strings[slots[i]] = v.toString();
+            }
+        }
+        return row;
+    }
+
+    /** @throws IllegalArgumentException naming the first VARCHAR column left unset */
+    public void checkComplete(Row row) {
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] == VARCHAR && row.strings[slots[i]] == null) {
+                throw new IllegalArgumentException("Missing value for column " + names[i]);
+            }
+        }
+    }
+
+    /** Encodes a row of this codec (or of one with the same columns, e.g. another layout version). */
+    public byte[] encode(Row row) {
+        int size = fixedBytes;
+        byte[][] strings = new byte[stringCount][];
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] == INT) continue;
+            String v = row.strings[slots[i]];
+            if (v == null) throw new IllegalArgumentException("Missing value for column " + names[i]);
+            byte[] b = v.getBytes(enc);
+            if (b.length > 65535) throw new IllegalArgumentException("VARCHAR too long: " + b.length);
+            strings[slots[i]] = b;
+            size += b.length;
+        }
+        return write(row.ints, strings, size);
+    }
+
+    private byte[] write(int[] ints, byte[][] strings, int size) {
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        if (version == V1) {
+            for (int i = 0; i < names.length; i++) {
+                if (types[i] == INT) {
+                    buf.putInt(ints[slots[i]]);
+                } else {
+                    byte[] b = strings[slots[i]];
+                    buf.putInt(b.length);
+                    buf.put(b);
+                }
+            }
+            return buf.array();
+        }
+        int pos = headerBytes;
+        for (int i = 0; i < names.length; i++) {
+            if (i > firstVar) {
+                if (pos > 0xFFFF) throw new IllegalArgumentException("Row too large for offset header: " + size + " bytes");
+                buf.putShort(2 * (i - firstVar - 1), (short) pos);
+            }
+            if (types[i] == INT) {
+                buf.putInt(pos, ints[slots[i]]);
+                pos += 4;
+            } else {
+                byte[] b = strings[slots[i]];
+                buf.put(pos, b);
+                pos += b.length;
+            }
+        }
+        return buf.array();
+    }
+
+    public Row decode(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        Row row = newRow();
+        int pos = headerBytes;
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] == INT) {
+                row.ints[slots[i]] = buf.getInt(pos);
+                pos += 4;
+            } else {
+                int start = version == V1 ? pos + 4 : pos;
+                int len = version == V1 ? buf.getInt(pos) : end(buf, bytes.length, i) - start;
+                row.strings[slots[i]] = new String(bytes, start, len, enc);
+                pos = start + len;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Decodes only columns {@code from} of this codec into a row of {@code into}
+     * (usually {@link #project}ed from this codec); other columns are never materialized.
+     */
+    public Row decode(byte[] bytes, RowCodec into, int[] from) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        Row row = into.newRow();
+        for (int k = 0; k < from.length; k++) {
+            int col = from[k];
+            int start = dataStart(buf, col);
+            if (types[col] == INT) {
+                row.ints[into.slots[k]] = buf.getInt(start);
+            } else {
+                row.strings[into.slots[k]] = new String(bytes, start, dataLength(buf, bytes.length, col, start), enc);
+            }
+        }
+        return row;
+    }
+
+    /** Row of a {@link #joined} codec from one row of each side; slots line up because both assign them in column order. */
+    public Row join(Row left, Row right) {
+        Row row = newRow();
+        System.arraycopy(left.ints, 0, row.ints, 0, left.ints.length);
+        System.arraycopy(right.ints, 0, row.ints, left.ints.length, right.ints.length);
+        System.arraycopy(left.strings, 0, row.strings, 0, left.strings.length);
+        System.arraycopy(right.strings, 0, row.strings, left.strings.length, right.strings.length);
+        return row;
+    }
+
+    /** Offset of column {@code col}'s value bytes (after the V1 length prefix). O(1) in V2, a walk in V1. */
+    private int dataStart(ByteBuffer buf, int col) {
+        if (version == V2) {
+            return col <= firstVar ? headerBytes + 4 * col : buf.getShort(2 * (col - firstVar - 1)) & 0xFFFF;
+        }
+        int pos = 0;
+        for (int i = 0; i < col; i++) {
+            pos += types[i] == INT ? 4 : 4 + buf.getInt(pos);
+        }
+        return types[col] == INT ? pos : pos + 4;
+    }
+
+    private int dataLength(ByteBuffer buf, int recLen, int col, int start) {
+        if (types[col] == INT) return 4;
+        return version == V1 ? buf.getInt(start - 4) : end(buf, recLen, col) - start;
+    }
+
+    /** V2: end of column {@code col}, i.e. where the next column starts. */
+    private int end(ByteBuffer buf, int recLen, int col) {
+        return col + 1 < names.length ? buf.getShort(2 * (col - firstVar)) & 0xFFFF : recLen;
+    }
+
+    /**
+     * Hash key of one column read straight from an encoded record: the value itself for INT,
+     * a hash of the encoded bytes for VARCHAR (confirm matches with {@link #sameValue}).
+     */
+    public int keyOf(byte[] rec, int col) {
+        ByteBuffer buf = ByteBuffer.wrap(rec);
+        int start = dataStart(buf, col);
+        if (types[col] == INT) return buf.getInt(start);
+        return hash(rec, start, dataLength(buf, rec.length, col, start));
+    }
+
+    /**
+     * {@link #keyOf} for a literal, so lookups hash the same way as stored records.
+     * @throws NumberFormatException if the column is INT and the literal is not a number
+     */
+    public int keyOf(String literal, int col) {
+        if (types[col] == INT) return Integer.parseInt(literal);
+        byte[] b = literal.getBytes(enc);
+        return hash(b, 0, b.length);
+    }
+
+    /** {@link #keyOf} for a column of a decoded row. */
+    public int keyOf(Row row, int col) {
+        if (types[col] == INT) return row.ints[slots[col]];
+        byte[] b = row.strings[slots[col]].getBytes(enc);
+        return hash(b, 0, b.length);
+    }
+
+    private static int hash(byte[] b, int from, int len) {
+        int h = 1;
+        for (int i = from, end = from + len; i < end; i++) h = 31 * h + b[i];
+        return h;
+    }
+
+    /** Whether two encoded records hold the same value in the given columns (types must match). */
+    public boolean sameValue(byte[] rec, int col, RowCodec other, byte[] otherRec, int otherCol) {
+        ByteBuffer bufA = ByteBuffer.wrap(rec), bufB = ByteBuffer.wrap(otherRec);
+        int a = dataStart(bufA, col), b = other.dataStart(bufB, otherCol);
+        int lenA = dataLength(bufA, rec.length, col, a);
+        int lenB = other.dataLength(bufB, otherRec.length, otherCol, b);
+        return lenA == lenB && Arrays.equals(rec, a, a + lenA, otherRec, b, b + lenB);
+    }
+
+    /** Empty row to fill with {@link Row#setInt} / {@link Row#setString} and {@link #encode(Row)}. */
+    public Row newRow() {
+        return new Row(this, new int[intCount], new String[stringCount]);
+    }
+
+    int slot(int col) { return slots[col]; }
+
+    /** Ascending order on one column: INT numerically, VARCHAR by {@link String#compareTo}. */
+    public Comparator<Row> comparator(int col) {
+        int slot = slots[col];
+        if (types[col] == INT) return (a, b) -> Integer.compare(a.ints[slot], b.ints[slot]);
+        return (a, b) -> a.strings[slot].compareTo(b.strings[slot]);
+    }
+
+    /**
+     * Equality filter with the same semantics as comparing the value's string form
+     * to {@code literal}; INT columns compare as primitives.
+     */
+    public Predicate<Row> equalsFilter(String column, String literal) {
+        int col = indexOf(column);
+        if (col < 0) return r -> false;
+        int slot = slots[col];
+        if (types[col] == VARCHAR) return r -> literal.equals(r.strings[slot]);
+        int want;
+        try { want = Integer.parseInt(literal); } catch (NumberFormatException e) { return r -> false; }
+        if (!Integer.toString(want).equals(literal)) return r -> false;
+        return r -> r.ints[slot] == want;
+    }
+}
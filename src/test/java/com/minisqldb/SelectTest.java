@@ -0,0 +1,381 @@
+package com.minisqldb;
+
+import com.minisqldb.config.DatabaseConfig;
+import com.minisqldb.sql.SqlMiniParser;
+import com.minisqldb.storage.HeapTable;
+import com.minisqldb.table.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SelectTest {
+    @TempDir
+    Path dir;
+
+    private Database open(DatabaseConfig cfg) throws Exception {
+        cfg.dataDir = dir;
+        return Database.open(cfg);
+    }
+
+    private static void createUsers(Database db) throws Exception {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("id", "INT");
+        cols.put("name", "VARCHAR");
+        db.createTable("users", cols);
+    }
+
+    private static String select(Database db, String sql) throws Exception {
+        return db.select(SqlMiniParser.parseSelect(sql));
+    }
+
+    @Test
+    void parsesOrderByAndLimit() {
+        var sel = SqlMiniParser.parseSelect("select * from users where name = 'order by x' ORDER BY id DESC LIMIT 5");
+        assertEquals("users", sel.table());
+        assertEquals("name", sel.whereCol());
+        assertEquals("order by x", sel.whereVal());
+        assertEquals("id", sel.orderBy());
+        assertTrue(sel.descending());
+        assertEquals(5, sel.limit());
+        var plain = SqlMiniParser.parseSelect("SELECT * FROM users");
+        assertNull(plain.orderBy());
+        assertEquals(-1, plain.limit());
+        var spaced = SqlMiniParser.parseSelect("SELECT * FROM u ORDER  BY id\tDESC LIMIT 2");
+        assertEquals("u", spaced.table());
+        assertEquals("id", spaced.orderBy());
+        assertTrue(spaced.descending());
+        assertEquals("id", SqlMiniParser.parseSelect("SELECT * FROM u ORDER\n BY id").orderBy());
+        var ct = SqlMiniParser.parseCreateTable("CREATE TABLE e (id INT) PARTITION  BY HASH(id) PARTITIONS 2");
+        assertEquals("e", ct.name());
+        assertEquals(2, ct.partitioning().partitions());
+    }
+
+    @Test
+    void limitZeroReadsNothing() throws Exception {
+        try (Database db = open(new DatabaseConfig())) {
+            createUsers(db);
+            assertEquals("", select(db, "SELECT * FROM users ORDER BY id LIMIT 0"));
+            assertEquals("", select(db, "SELECT * FROM users LIMIT 0"));
+            assertTrue(db.openTableFiles().isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> select(db, "SELECT * FROM users ORDER BY nope LIMIT 0"));
+        }
+    }
+
+    @Test
+    void keywordsInsideIdentifiersAreNotClauses() {
+        var where = SqlMiniParser.parseSelect("SELECT * FROM t WHERE limit_n = 3");
+        assertEquals("limit_n", where.whereCol());
+        assertEquals("3", where.whereVal());
+        assertEquals(-1, where.limit());
+        var cols = SqlMiniParser.parseSelect("SELECT from_city FROM t");
+        assertEquals(List.of("from_city"), cols.columns());
+        assertEquals("t", cols.table());
+        var table = SqlMiniParser.parseSelect("SELECT * FROM join_log");
+        assertEquals("join_log", table.table());
+        assertNull(table.join());
+    }
+
+    @Test
+    void orderByWithLimitAndSpill() throws Exception {
+        DatabaseConfig cfg = new DatabaseConfig();
+        cfg.sortMemoryBytes = 2048; // forces several spilled runs
+        try (Database db = open(cfg)) {
+            createUsers(db);
+            for (int i = 0; i < 300; i++) db.insertRow("users", Map.of("id", (i * 37) % 100, "name", "u" + i));
+
+            String[] asc = select(db, "SELECT * FROM users ORDER BY id").split("\n");
+            assertEquals(300, asc.length);
+            assertEquals("{id=0, name=u0}", asc[0]);
+            assertEquals("{id=0, name=u100}", asc[1]); // stable across runs
+            assertEquals("{id=99, name=u227}", asc[299]);
+
+            assertEquals("{id=99, name=u27}\n{id=99, name=u127}\n",
+                    select(db, "SELECT * FROM users ORDER BY id DESC LIMIT 2"));
+            assertEquals("{id=0, name=u0}\n", select(db, "SELECT * FROM users LIMIT 1"));
+            assertEquals("{id=37, name=u1}\n{id=37, name=u101}\n{id=37, name=u201}\n",
+                    select(db, "SELECT * FROM users WHERE id = 37 ORDER BY name"));
+            try (var tmp = Files.list(dir.resolve("tmp"))) {
+                assertEquals(0, tmp.count(), "spill files are removed");
+            }
+        }
+    }
+
+    private static void createOrders(Database db) throws Exception {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("uid", "INT");
+        cols.put("item", "VARCHAR");
+        db.createTable("orders", cols);
+    }
+
+    @Test
+    void hashJoin() throws Exception {
+        try (Database db = open(new DatabaseConfig())) {
+            createUsers(db);
+            createOrders(db);
+            db.insertRow("users", Map.of("id", 1, "name", "Alice"));
+            db.insertRow("users", Map.of("id", 2, "name", "Bob"));
+            db.insertRow("users", Map.of("id", 3, "name", "Carol"));
+            db.insertRow("orders", Map.of("uid", 2, "item", "pen"));
+            db.insertRow("orders", Map.of("uid", 1, "item", "ink"));
+            db.insertRow("orders", Map.of("uid", 2, "item", "pad"));
+
+            assertEquals("""
+                    {users.id=1, users.name=Alice, orders.uid=1, orders.item=ink}
+                    {users.id=2, users.name=Bob, orders.uid=2, orders.item=pen}
+                    {users.id=2, users.name=Bob, orders.uid=2, orders.item=pad}
+                    """, select(db, "SELECT * FROM users JOIN orders ON orders.uid = users.id"));
+            assertEquals("{users.id=2, users.name=Bob, orders.uid=2, orders.item=pad}\n",
+                    select(db, "SELECT * FROM users INNER JOIN orders ON users.id = orders.uid WHERE item = 'pad'"));
+            assertEquals("{users.id=2, users.name=Bob, orders.uid=2, orders.item=pen}\n",
+                    select(db, "SELECT * FROM users JOIN orders ON users.id = orders.uid ORDER BY orders.item DESC LIMIT 1"));
+            assertEquals("{users.name=Alice, orders.item=ink}\n",
+                    select(db, "SELECT name, orders.item FROM users JOIN orders ON users.id = orders.uid WHERE uid = 1"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> select(db, "SELECT * FROM users JOIN orders ON users.name = orders.uid"));
+            assertEquals(3, select(db, "SELECT * FROM users JOIN orders ON uid = users.id").lines().count());
+            assertEquals(3, select(db, "SELECT * FROM users JOIN orders ON orders.uid = id").lines().count());
+            var sameTable = assertThrows(IllegalArgumentException.class,
+                    () -> SqlMiniParser.parseSelect("SELECT * FROM users JOIN orders ON orders.uid = orders.uid"));
+            assertEquals("JOIN ON must compare a column of users with one of orders", sameTable.getMessage());
+            var unknown = assertThrows(IllegalArgumentException.class,
+                    () -> SqlMiniParser.parseSelect("SELECT * FROM users JOIN orders ON zz.id = qq.uid"));
+            assertEquals("Unknown table in JOIN ON: zz", unknown.getMessage());
+
+            LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+            cols.put("id", "INT");
+            cols.put("tag", "VARCHAR");
+            db.createTable("events", cols);
+            db.insertRow("events", Map.of("id", 2, "tag", "x"));
+            String join = "FROM users JOIN events ON users.id = events.id";
+            assertEquals("{events.id=2, users.name=Bob}\n", select(db, "SELECT events.id, name " + join + " WHERE users.id = 2"));
+            for (String q : new String[]{"SELECT id " + join, "SELECT * " + join + " WHERE id = 2", "SELECT * " + join + " ORDER BY id"}) {
+                var e = assertThrows(IllegalArgumentException.class, () -> select(db, q));
+                assertTrue(e.getMessage().startsWith("Ambiguous column: id"), e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void hashJoinGracePartitionsMatchInMemory() throws Exception {
+        String q = "SELECT * FROM users JOIN orders ON users.name = orders.item ORDER BY users.id";
+        String inMemory = null;
+        for (long budget : new long[]{64L << 20, 512}) {
+            DatabaseConfig cfg = new DatabaseConfig();
+            cfg.joinMemoryBytes = budget;
+            try (Database db = open(cfg)) {
+                createUsers(db);
+                createOrders(db);
+                for (int i = 0; i < 200; i++) {
+                    db.insertRow("users", Map.of("id", i, "name", "n" + (i % 50)));
+                    db.insertRow("orders", Map.of("uid", i, "item", "n" + (i % 70)));
+                }
+                String result = select(db, q);
+                if (inMemory == null) inMemory = result; else assertEquals(inMemory, result);
+                assertEquals(5, select(db, "SELECT * FROM users JOIN orders ON users.name = orders.item LIMIT 5").lines().count());
+                db.dropTable("users");
+                db.dropTable("orders");
+            }
+        }
+        assertEquals(600, inMemory.lines().count());
+        try (var tmp = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, tmp.count(), "partition files are removed");
+        }
+    }
+
+    @Test
+    void partitionedTables() throws Exception {
+        DatabaseConfig cfg = new DatabaseConfig();
+        cfg.partitionDirs = List.of(dir.resolve("disk0"), dir.resolve("disk1"));
+        try (Database db = open(cfg)) {
+            var hash = SqlMiniParser.parseCreateTable("CREATE TABLE events (id INT, tag VARCHAR) PARTITION BY HASH(tag) PARTITIONS 4");
+            db.createTable(hash.name(), hash.columns(), hash.partitioning());
+            var range = SqlMiniParser.parseCreateTable("CREATE TABLE users (id INT, name VARCHAR) PARTITION BY RANGE(id) BOUNDS (10, 20)");
+            assertEquals(3, range.partitioning().partitions());
+            db.createTable(range.name(), range.columns(), range.partitioning());
+            for (int i = 0; i < 30; i++) {
+                db.insertRow("events", Map.of("id", i, "tag", "t" + (i % 6)));
+                db.insertRow("users", Map.of("id", i, "name", "u" + i));
+            }
+            assertTrue(Files.size(dir.resolve("disk0/users.p0.tbl")) > 0);
+            assertTrue(Files.size(dir.resolve("disk1/users.p1.tbl")) > 0);
+            assertTrue(Files.size(dir.resolve("disk0/users.p2.tbl")) > 0);
+
+            assertEquals(30, select(db, "SELECT * FROM events ORDER BY id").lines().count());
+            assertEquals("{id=3, tag=t3}\n{id=9, tag=t3}\n{id=15, tag=t3}\n{id=21, tag=t3}\n{id=27, tag=t3}\n",
+                    select(db, "SELECT * FROM events WHERE tag = 't3' ORDER BY id"));
+            assertEquals("{id=15, name=u15}\n", select(db, "SELECT * FROM users WHERE id = 15"));
+            assertEquals("{id=29, name=u29}\n{id=28, name=u28}\n", select(db, "SELECT * FROM users ORDER BY id DESC LIMIT 2"));
+            assertEquals(30, select(db, "SELECT * FROM users JOIN events ON users.id = events.id").lines().count());
+            assertEquals(4, select(db, "SELECT * FROM events LIMIT 4").lines().count()); // parallel scan stops early
+            assertEquals(3, select(db, "SELECT * FROM users JOIN events ON users.id = events.id LIMIT 3").lines().count());
+            assertEquals("", select(db, "SELECT * FROM events LIMIT 0"));
+            assertTrue(SqlMiniParser.describe(db.catalog()).contains("users(id INT, name VARCHAR) PARTITION BY RANGE(id) BOUNDS (10, 20)"));
+
+            assertEquals(range.partitioning(), SqlMiniParser.parseCreateTable(
+                    "CREATE TABLE users (id INT, name VARCHAR) PARTITION BY RANGE(id) BOUNDS (10, 20)").partitioning());
+        }
+        // a fresh instance has opened nothing, so an equality WHERE on the partition key must open one file
+        try (Database db = open(cfg)) {
+            var range = SqlMiniParser.parseCreateTable("CREATE TABLE users (id INT, name VARCHAR) PARTITION BY RANGE(id) BOUNDS (10, 20)");
+            db.createTable(range.name(), range.columns(), range.partitioning());
+            assertEquals("{id=15, name=u15}\n", select(db, "SELECT * FROM users WHERE id = 15"));
+            assertEquals(Set.of(dir.resolve("disk1/users.p1.tbl")), db.openTableFiles());
+
+            db.dropTable("users");
+            assertFalse(Files.exists(dir.resolve("disk1/users.p1.tbl")));
+        }
+    }
+
+    @Test
+    void rejectedPartitionSpecCreatesNothing() throws Exception {
+        try (Database db = open(new DatabaseConfig())) {
+            for (String sql : new String[]{
+                    "CREATE TABLE IF NOT EXISTS e (id INT, tag VARCHAR) PARTITION BY RANGE(tag) BOUNDS (1)",
+                    "CREATE TABLE IF NOT EXISTS e (id INT, tag VARCHAR) PARTITION BY HASH(nope) PARTITIONS 2",
+                    "CREATE TABLE IF NOT EXISTS e (id BIGINT)"}) {
+                var ct = SqlMiniParser.parseCreateTable(sql);
+                assertThrows(IllegalArgumentException.class, () -> db.createTable(ct.name(), ct.columns(), ct.partitioning()));
+                // the REPL only reports "already exists" for IF NOT EXISTS when the catalog has the table
+                assertNull(db.catalog().getTable("e"));
+            }
+            try (var files = Files.list(dir.resolve("tables"))) {
+                assertEquals(0, files.count());
+            }
+        }
+    }
+
+    @Test
+    void parallelScanReportsAFailingPartition() throws Exception {
+        DatabaseConfig cfg = new DatabaseConfig();
+        var ct = SqlMiniParser.parseCreateTable("CREATE TABLE events (id INT, tag VARCHAR) PARTITION BY HASH(id) PARTITIONS 4");
+        try (Database db = open(cfg)) {
+            db.createTable(ct.name(), ct.columns(), ct.partitioning());
+            for (int i = 0; i < 400; i++) db.insertRow("events", Map.of("id", i, "tag", "t" + i));
+        }
+        try (var heap = new HeapTable(dir.resolve("tables/events.p2.tbl"), cfg.pageSizeBytes)) {
+            heap.insert(new byte[]{1}); // too short for (INT, VARCHAR)
+        }
+        try (Database db = open(cfg)) {
+            db.createTable(ct.name(), ct.columns(), ct.partitioning());
+            assertThrows(RuntimeException.class, () -> select(db, "SELECT * FROM events"));
+            assertEquals("{id=1, tag=t1}\n", select(db, "SELECT * FROM events WHERE id = 1")); // other partitions still read
+        }
+    }
+
+    @Test
+    void projection() throws Exception {
+        for (int version : new int[]{1, 2}) {
+            DatabaseConfig cfg = new DatabaseConfig();
+            cfg.rowFormatVersion = version;
+            try (Database db = open(cfg)) {
+                LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+                cols.put("id", "INT");
+                cols.put("name", "VARCHAR");
+                cols.put("city", "VARCHAR");
+                cols.put("age", "INT");
+                db.createTable("people", cols);
+                db.insertRow("people", Map.of("id", 1, "name", "Alice", "city", "Oslo", "age", 30));
+                db.insertRow("people", Map.of("id", 2, "name", "Bob", "city", "Rome", "age", 25));
+
+                assertEquals("{age=30, name=Alice}\n{age=25, name=Bob}\n", select(db, "SELECT age, name FROM people"));
+                assertEquals("{city=Rome}\n", select(db, "SELECT city FROM people WHERE name = 'Bob'"));
+                assertEquals("{name=Bob}\n{name=Alice}\n", select(db, "SELECT name FROM people ORDER BY age"));
+                assertEquals("{id=1, name=Alice, city=Oslo, age=30}\n", select(db, "SELECT * FROM people LIMIT 1"));
+                assertThrows(IllegalArgumentException.class, () -> select(db, "SELECT nope FROM people"));
+                db.dropTable("people");
+            }
+        }
+    }
+
+    @Test
+    void tableFilesKeepTheRowFormatTheyWereWrittenIn() throws Exception {
+        DatabaseConfig v1 = new DatabaseConfig();
+        v1.rowFormatVersion = 1;
+        try (Database db = open(v1)) {
+            createUsers(db);
+            db.insertRow("users", Map.of("id", 1, "name", "Alice"));
+            db.insertRow("users", Map.of("id", 2, "name", "Bob"));
+        }
+        try (Database db = open(new DatabaseConfig())) { // default format is 2
+            createUsers(db);
+            createOrders(db);
+            db.insertRow("users", Map.of("id", 3, "name", "Carol")); // appended as v1, like the rest of the file
+            db.insertRow("orders", Map.of("uid", 2, "item", "pen"));
+            assertEquals("{id=1, name=Alice}\n{id=2, name=Bob}\n{id=3, name=Carol}\n", db.dump("users"));
+            assertEquals("{name=Bob}\n", select(db, "SELECT name FROM users WHERE id = 2"));
+            assertEquals("{users.name=Bob, orders.item=pen}\n",
+                    select(db, "SELECT name, item FROM users JOIN orders ON users.id = orders.uid"));
+            assertEquals("{orders.uid=2, orders.item=pen, users.id=2, users.name=Bob}\n",
+                    select(db, "SELECT * FROM orders JOIN users ON orders.uid = users.id"));
+
+            db.truncateTable("users"); // a truncated file starts over in the configured format
+            db.insertRow("users", Map.of("id", 4, "name", "Dan"));
+            assertEquals("{id=4, name=Dan}\n", db.dump("users"));
+        }
+        try (Database db = open(new DatabaseConfig())) {
+            createUsers(db);
+            assertEquals("{id=4, name=Dan}\n", select(db, "SELECT * FROM users"));
+        }
+    }
+
+    @Test
+    void insertRowChecksPositionalRows() throws Exception {
+        try (Database db = open(new DatabaseConfig())) {
+            createUsers(db);
+            createOrders(db);
+            var events = SqlMiniParser.parseCreateTable("CREATE TABLE events (id INT, tag VARCHAR) PARTITION BY HASH(tag) PARTITIONS 4");
+            db.createTable(events.name(), events.columns(), events.partitioning());
+
+            Row order = db.newRow("orders").setInt(0, 1).setString(1, "pen");
+            var foreign = assertThrows(IllegalArgumentException.class, () -> db.insertRow("users", order));
+            assertEquals("Row does not belong to table users", foreign.getMessage());
+            var missing = assertThrows(IllegalArgumentException.class, () -> db.insertRow("events", db.newRow("events").setInt(0, 1)));
+            assertEquals("Missing value for column tag", missing.getMessage());
+
+            db.insertRow("users", db.newRow("users").setInt(0, 1).setString(1, "Alice"));
+            assertEquals("{id=1, name=Alice}\n", db.dump("users"));
+            assertEquals("", db.dump("orders") + db.dump("events"));
+        }
+    }
+
+    @Test
+    void resultCacheServesRepeatsAndInvalidatesOnWrite() throws Exception {
+        DatabaseConfig cfg = new DatabaseConfig();
+        cfg.resultCacheBytes = 1 << 20;
+        try (Database db = open(cfg)) {
+            createUsers(db);
+            db.insertRow("users", Map.of("id", 1, "name", "Alice"));
+            String q = "SELECT * FROM users WHERE id = 1";
+            assertEquals("{id=1, name=Alice}\n", select(db, q));
+            assertEquals("{id=1, name=Alice}\n", select(db, q));
+            assertEquals(1, db.resultCacheStats().hits());
+            assertEquals(1, db.resultCacheStats().misses());
+
+            db.insertRow("users", Map.of("id", 1, "name", "Alicia"));
+            assertEquals("{id=1, name=Alice}\n{id=1, name=Alicia}\n", select(db, q));
+            assertEquals(2, db.resultCacheStats().misses());
+
+            db.truncateTable("users");
+            assertEquals("", select(db, q));
+            assertEquals(3, db.resultCacheStats().misses());
+        }
+    }
+
+    @Test
+    void resultCacheDisabledByDefault() throws Exception {
+        try (Database db = open(new DatabaseConfig())) {
+            assertNull(db.resultCacheStats());
+        }
+    }
+}
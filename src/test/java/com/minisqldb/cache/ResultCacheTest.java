@@ -0,0 +1,39 @@
+package com.minisqldb.cache;
+
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ResultCacheTest {
+    @Test
+    void invalidateDropsOnlyEntriesThatReadTheTable() {
+        ResultCache cache = new ResultCache(1 << 20);
+        cache.put("users@1 q1", "a", "users");
+        cache.put("orders@1 q2", "b", "orders");
+        cache.put("orders@1,users@1 q3", "c", "orders", "users");
+        cache.invalidate("users");
+        assertNull(cache.get("users@1 q1"));
+        assertNull(cache.get("orders@1,users@1 q3"));
+        assertEquals("b", cache.get("orders@1 q2"));
+        assertEquals(1, cache.stats().entries());
+
+        cache.invalidate("users"); // nothing cached for it any more
+        cache.invalidate("orders");
+        assertEquals(0, cache.stats().entries());
+        assertEquals(0, cache.stats().bytes());
+    }
+
+    @Test
+    void evictedEntriesLeaveTheTableIndex() {
+        ResultCache cache = new ResultCache(400);
+        for (int i = 0; i < 10; i++) cache.put("users@" + i + " q", "row " + i, "users");
+        assertTrue(cache.stats().evictions() > 0);
+        long bytes = cache.stats().bytes();
+        assertTrue(bytes <= 400);
+        cache.invalidate("users");
+        assertEquals(0, cache.stats().entries());
+        assertEquals(0, cache.stats().bytes());
+    }
+}
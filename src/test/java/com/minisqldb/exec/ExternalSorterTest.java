@@ -0,0 +1,63 @@
+package com.minisqldb.exec;
+
+import com.minisqldb.catalog.Catalog;
+import com.minisqldb.table.Row;
+import com.minisqldb.table.RowCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ExternalSorterTest {
+    @TempDir
+    Path dir;
+
+    private static RowCodec users() {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("id", "INT");
+        cols.put("name", "VARCHAR");
+        return RowCodec.of(new Catalog.TableDef("users", cols), StandardCharsets.UTF_8);
+    }
+
+    /** @param runs receives {runs spilled, runs left for the final merge, fan-in} */
+    private List<String> sort(long memoryBytes, int[] runs) throws Exception {
+        RowCodec codec = users();
+        List<String> out = new ArrayList<>();
+        try (ExternalSorter sorter = new ExternalSorter(codec, codec.comparator(0), memoryBytes, dir.resolve("tmp"))) {
+            for (int i = 0; i < 300; i++) sorter.add(codec.newRow().setInt(0, (i * 37) % 100).setString(1, "u" + i));
+            runs[0] = sorter.runCount();
+            sorter.forEachSorted(r -> out.add(r.toString()));
+            runs[1] = sorter.runCount();
+            runs[2] = sorter.fanIn();
+        }
+        return out;
+    }
+
+    @Test
+    void spilledRunsMergeLikeInMemorySort() throws Exception {
+        int[] runs = new int[3];
+        List<String> inMemory = sort(64L << 20, runs);
+        assertEquals(0, runs[0]);
+        List<String> spilled = sort(2048, runs);
+        assertTrue(runs[0] > 4, "expected several runs, got " + runs[0]);
+        assertEquals(2, runs[2]); // a 2 KB budget merges two runs at a time, through 1 KB buffers
+        assertTrue(runs[1] <= 2, "intermediate passes leave at most fan-in runs, got " + runs[1]);
+        assertEquals(inMemory, spilled);
+        assertEquals(300, spilled.size());
+        assertEquals("{id=0, name=u0}", spilled.get(0)); // ties keep insertion order
+        assertEquals("{id=0, name=u100}", spilled.get(1));
+        try (var tmp = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, tmp.count(), "run files are removed");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.minisqldb.exec;
+
+import com.minisqldb.catalog.Catalog;
+import com.minisqldb.table.RowCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class HashJoinTest {
+    @TempDir
+    Path dir;
+
+    private static final RowCodec CODEC;
+    static {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("k", "INT");
+        cols.put("v", "VARCHAR");
+        CODEC = RowCodec.of(new Catalog.TableDef("t", cols), StandardCharsets.UTF_8);
+    }
+
+    private static List<byte[]> rows(int n, IntUnaryOperator key) {
+        List<byte[]> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(CODEC.encode(CODEC.newRow().setInt(0, key.applyAsInt(i)).setString(1, "row" + i)));
+        return out;
+    }
+
+    private static HashJoin.Records records(List<byte[]> rows) {
+        return v -> {
+            for (byte[] r : rows) if (!v.test(r)) return false;
+            return true;
+        };
+    }
+
+    /** Joins and returns {matches, levels}; every pair is checked to share its key. */
+    private long[] join(List<byte[]> build, List<byte[]> probe, long memoryBytes) throws Exception {
+        long[] matches = {0};
+        try (HashJoin hj = new HashJoin(CODEC, 0, CODEC, 0, memoryBytes, dir.resolve("tmp"))) {
+            hj.run(records(build), records(probe), (p, b) -> {
+                assertEquals(CODEC.keyOf(p, 0), CODEC.keyOf(b, 0));
+                matches[0]++;
+                return true;
+            });
+            return new long[]{matches[0], hj.levels()};
+        }
+    }
+
+    @Test
+    void oversizedPartitionsAreSplitAgain() throws Exception {
+        List<byte[]> build = rows(4000, i -> i % 2000), probe = rows(3000, i -> i);
+        assertArrayEquals(new long[]{4000, 0}, join(build, probe, 64L << 20));
+        long[] spilled = join(build, probe, 4096); // ~12 KB per level-1 partition: needs a second split
+        assertEquals(4000, spilled[0]);
+        assertEquals(2, spilled[1]);
+        try (var tmp = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, tmp.count(), "partition files are removed");
+        }
+    }
+
+    @Test
+    void singleHotKeyJoinsInChunks() throws Exception {
+        List<byte[]> build = rows(500, i -> 7), probe = rows(30, i -> i % 10);
+        long[] r = join(build, probe, 2048);
+        assertEquals(500 * 3, r[0]);
+        assertEquals(4, r[1]);
+    }
+
+    @Test
+    void stopsWhenEmitSaysSo() throws Exception {
+        int[] seen = {0};
+        try (HashJoin hj = new HashJoin(CODEC, 0, CODEC, 0, 4096, dir.resolve("tmp"))) {
+            hj.run(records(rows(4000, i -> i % 2000)), records(rows(3000, i -> i)), (p, b) -> ++seen[0] < 5);
+            assertTrue(hj.spilled());
+        }
+        assertEquals(5, seen[0]);
+    }
+}
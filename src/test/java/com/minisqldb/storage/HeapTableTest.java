@@ -0,0 +1,68 @@
+package com.minisqldb.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import java.nio.file.Path;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class HeapTableTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void heapScanSeesRowsWrittenAfterReadAhead() throws Exception {
+        Path file = dir.resolve("h.tbl");
+        try (HeapTable t = new HeapTable(file, 256, 8)) {
+            for (int i = 0; i < 200; i++) t.insert(new byte[]{(byte) i, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+            int[] n = {0};
+            t.forEach(rec -> assertEquals((byte) n[0]++, rec[0]));
+            assertEquals(200, n[0]);
+        }
+        try (HeapTable t = new HeapTable(file, 256, 8)) {
+            int[] n = {0};
+            t.forEach(rec -> assertEquals((byte) n[0]++, rec[0]));
+            assertEquals(200, n[0]);
+        }
+        try (HeapTable t = new HeapTable(file, 256, 8)) {
+            int[] n = {0};
+            assertFalse(t.forEachWhile(rec -> ++n[0] < 3));
+            assertEquals(3, n[0]);
+            assertTrue(t.forEachWhile(rec -> true));
+        }
+    }
+
+    @Test
+    void heapFileRecordsItsRowFormat() throws Exception {
+        Path file = dir.resolve("f.tbl");
+        try (HeapTable t = new HeapTable(file, 256, 1, 2)) {
+            assertEquals(2, t.rowFormat());
+            t.insert(new byte[]{1});
+        }
+        try (HeapTable t = new HeapTable(file, 256, 1, 1)) {
+            assertEquals(2, t.rowFormat(), "an existing file keeps the format in its header");
+            int[] n = {0};
+            t.forEach(rec -> n[0]++);
+            assertEquals(1, n[0]);
+        }
+
+        // headerless file from before the header: page 0 is a data page holding one record
+        Path legacy = dir.resolve("legacy.tbl");
+        try (Pager w = new Pager(legacy, 256)) {
+            Page p = w.read(w.allocateNewPage());
+            p.getBuf().putInt(0, 4 + 4 + 3).putInt(4, 3).put(8, (byte) 7);
+            w.write(p);
+        }
+        try (HeapTable t = new HeapTable(legacy, 256, 1, 2)) {
+            assertEquals(1, t.rowFormat());
+            t.insert(new byte[]{8, 0});
+            int[] n = {0};
+            t.forEach(rec -> assertEquals(7 + n[0]++, rec[0]));
+            assertEquals(2, n[0]);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.minisqldb.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import java.nio.file.Path;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PagerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sequentialReadAheadReturnsSamePages() throws Exception {
+        Path file = dir.resolve("t.tbl");
+        int pageSize = 512, pages = 37;
+        try (Pager w = new Pager(file, pageSize)) {
+            for (int i = 0; i < pages; i++) {
+                Page p = w.read(w.allocateNewPage());
+                p.getBuf().putInt(0, i * 31);
+                w.write(p);
+            }
+        }
+        try (Pager r = new Pager(file, pageSize, 4)) {
+            assertEquals(pages, r.pageCount());
+            for (int i = 0; i < pages; i++) assertEquals(i * 31, r.read(i).getBuf().getInt(0), "page " + i);
+            assertEquals(5 * 31, r.read(5).getBuf().getInt(0));
+            // page 0 alone, then window 1-4 and eight prefetched windows from page 5 on
+            assertEquals(10, r.fileReads());
+        }
+        try (Pager r = new Pager(file, pageSize, 1)) {
+            for (int i = 0; i < pages; i++) r.read(i);
+            assertEquals(pages, r.fileReads());
+        }
+    }
+}
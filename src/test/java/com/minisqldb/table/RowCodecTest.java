@@ -0,0 +1,91 @@
+package com.minisqldb.table;
+
+import com.minisqldb.catalog.Catalog;
+import org.junit.jupiter.api.Test;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RowCodecTest {
+    private static Catalog.TableDef users() {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("id", "INT");
+        cols.put("name", "VARCHAR");
+        cols.put("age", "INT");
+        return new Catalog.TableDef("users", cols);
+    }
+
+    @Test
+    void roundTrip() {
+        RowCodec codec = RowCodec.of(users(), StandardCharsets.UTF_8);
+        byte[] rec = codec.encode(Map.of("id", 7, "name", "Zoë", "age", "41"));
+        Row row = codec.decode(rec);
+        assertEquals(7, row.getInt(0));
+        assertEquals("Zoë", row.getString(1));
+        assertEquals(41, row.get("age"));
+        assertEquals("{id=7, name=Zoë, age=41}", row.toString());
+        assertEquals(RowFormat.deserialize(users(), rec, StandardCharsets.UTF_8).toString(), row.toString());
+    }
+
+    @Test
+    void equalsFilterMatchesStringForm() {
+        RowCodec codec = RowCodec.of(users(), StandardCharsets.UTF_8);
+        Row row = codec.decode(codec.encode(Map.of("id", 1, "name", "Alice", "age", 30)));
+        assertTrue(codec.equalsFilter("id", "1").test(row));
+        assertFalse(codec.equalsFilter("id", "01").test(row));
+        assertTrue(codec.equalsFilter("name", "Alice").test(row));
+        assertFalse(codec.equalsFilter("missing", "1").test(row));
+    }
+
+    @Test
+    void v2OffsetHeaderDecodesAnyColumnDirectly() {
+        LinkedHashMap<String, String> cols = new LinkedHashMap<>();
+        cols.put("a", "INT");
+        cols.put("s1", "VARCHAR");
+        cols.put("b", "INT");
+        cols.put("s2", "VARCHAR");
+        cols.put("c", "INT");
+        Catalog.TableDef def = new Catalog.TableDef("wide", cols);
+        Map<String, Object> values = Map.of("a", 1, "s1", "xy", "b", 2, "s2", "", "c", 3);
+        for (int version : new int[]{RowCodec.V1, RowCodec.V2}) {
+            RowCodec codec = RowCodec.of(def, StandardCharsets.UTF_8, version);
+            byte[] rec = codec.encode(values);
+            assertEquals("{a=1, s1=xy, b=2, s2=, c=3}", codec.decode(rec).toString());
+            assertArrayEquals(rec, codec.encode(codec.decode(rec)));
+
+            int[] read = {4, 1};
+            RowCodec projected = codec.project(read);
+            assertEquals("{c=3, s1=xy}", codec.decode(rec, projected, read).toString());
+            assertEquals(3, codec.keyOf(rec, 4));
+            assertEquals(codec.keyOf("xy", 1), codec.keyOf(rec, 1));
+        }
+        RowCodec v1 = RowCodec.of(def, StandardCharsets.UTF_8, RowCodec.V1);
+        RowCodec v2 = RowCodec.of(def, StandardCharsets.UTF_8, RowCodec.V2);
+        byte[] r1 = v1.encode(values), r2 = v2.encode(values);
+        assertEquals(r1.length - 2, r2.length); // two 4-byte length prefixes become three 2-byte offsets
+        assertTrue(v1.sameValue(r1, 1, v2, r2, 1));
+        assertFalse(v1.sameValue(r1, 1, v2, r2, 3));
+    }
+
+    @Test
+    void missingColumnRejected() {
+        RowCodec codec = RowCodec.of(users(), StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(Map.of("id", 1)));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(codec.newRow().setInt(0, 1)));
+    }
+
+    @Test
+    void positionalRowEncodesLikeMap() {
+        RowCodec codec = RowCodec.of(users(), StandardCharsets.UTF_8);
+        Row row = codec.newRow().setInt(0, 7).setString(1, "Zoë").setInt(2, 41);
+        assertArrayEquals(codec.encode(Map.of("id", 7, "name", "Zoë", "age", 41)), codec.encode(row));
+        assertEquals(codec.keyOf(codec.encode(row), 1), codec.keyOf(row, 1));
+        assertThrows(IllegalArgumentException.class, () -> row.setInt(1, 3));
+    }
+}